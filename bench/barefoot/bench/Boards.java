@@ -0,0 +1,35 @@
+package barefoot.bench;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * The boards used by the benchmarks, by name so they can be given as a JMH parameter.
+ * LARGE and HUGE are synthetic boards with the bomb density of GAME_HARD.
+ */
+final class Boards {
+    static final int[] LARGE = {256, 256, 13_500};
+    static final int[] HUGE = {1024, 1024, 216_000};
+
+    private Boards() {
+    }
+
+    /**
+     * @param name String EASY, MEDIUM, HARD, LARGE or HUGE
+     * @return int[] rows, columns and bombs as the difficulty constants in Constants.java
+     */
+    static int[] byName(String name) {
+        switch (name) {
+            case "EASY":
+                return GAME_EASY;
+            case "MEDIUM":
+                return GAME_MEDIUM;
+            case "HARD":
+                return GAME_HARD;
+            case "LARGE":
+                return LARGE;
+            case "HUGE":
+                return HUGE;
+        }
+        throw new IllegalArgumentException("Error, unknown board: " + name);
+    }
+}
@@ -0,0 +1,49 @@
+package barefoot.bench;
+
+import barefoot.minesweeper.GameSession;
+import barefoot.sweepervariants.BasicSweeperBot;
+import barefoot.sweepervariants.EnumerationSweeperBot;
+import barefoot.sweepervariants.SweeperBot;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Benchmarks one move of a bot. The bot plays game after game, a new game
+ * is started from the next seed when the last one is over.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class BotBenchmark {
+    @Param({"EASY", "MEDIUM", "HARD"})
+    public String board;
+
+    @Param({"basic", "enumeration"})
+    public String bot;
+
+    private int[] difficulty;
+    private SweeperBot sweeperBot;
+    private GameSession session;
+    private long seed;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        difficulty = Boards.byName(board);
+        sweeperBot = bot.equals("basic") ? new BasicSweeperBot() : new EnumerationSweeperBot(difficulty);
+        session = new GameSession(difficulty, seed++);
+    }
+
+    @Benchmark
+    public int takeAutomatedAction() {
+        if (session.getGameStatus() != GAME_INPROGRESS)
+            session.newGame(difficulty, seed++);
+        sweeperBot.takeAutomatedAction(session.getBoardView(), session);
+        return session.getGameStatus();
+    }
+}
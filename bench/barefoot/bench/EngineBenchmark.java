@@ -0,0 +1,104 @@
+package barefoot.bench;
+
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.Engine;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Benchmarks of the hot paths of Engine, on the standard boards and on
+ * larger synthetic boards. Run with BenchmarkRunner to get allocation rates.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class EngineBenchmark {
+    @Param({"EASY", "MEDIUM", "HARD", "LARGE", "HUGE"})
+    public String board;
+
+    private int[] difficulty;
+    private long seed;
+    //A game in progress, with one sweep made
+    private Engine game;
+    private int flagRow;
+    private int flagCol;
+
+    @Setup(Level.Trial)
+    public void setUpTrial() {
+        difficulty = Boards.byName(board);
+        long gameSeed = 42;
+        do {
+            game = new Engine(difficulty[0], difficulty[1], difficulty[2], gameSeed++);
+            game.sweepLocation(difficulty[0] / 2, difficulty[1] / 2);
+        } while (game.getGameStatus() != GAME_INPROGRESS);
+        BoardView view = game.getBoardView();
+        for (int i = 0; i < difficulty[0] * difficulty[1]; i++) {
+            if (view.getCell(i / difficulty[1], i % difficulty[1]) == CELL_HIDDEN) {
+                flagRow = i / difficulty[1];
+                flagCol = i % difficulty[1];
+            }
+        }
+    }
+
+    /**
+     * A board without bombs, the first sweep opens the whole board. A new board
+     * is made for every sweep, only for sweepOpenArea, and the setup is not
+     * part of the measured time.
+     */
+    @State(Scope.Thread)
+    public static class EmptyBoard {
+        private Engine game;
+
+        @Setup(Level.Invocation)
+        public void setUp(EngineBenchmark benchmark) {
+            game = new Engine(benchmark.difficulty[0], benchmark.difficulty[1], 0, benchmark.seed);
+        }
+    }
+
+    @Benchmark
+    public Engine construct() {
+        return new Engine(difficulty[0], difficulty[1], difficulty[2], seed++);
+    }
+
+    @Benchmark
+    public long sweepOpenArea(EmptyBoard empty) {
+        return empty.game.sweepLocation(difficulty[0] / 2, difficulty[1] / 2).getCount();
+    }
+
+    @Benchmark
+    public int getGameStatus() {
+        return game.getGameStatus();
+    }
+
+    @Benchmark
+    public Double[][] getPlayerRevealedMatrix() {
+        return game.getPlayerRevealedMatrix();
+    }
+
+    /**
+     * Reads every location through the BoardView, the replacement for getPlayerRevealedMatrix()
+     */
+    @Benchmark
+    public int scanBoardView() {
+        BoardView view = game.getBoardView();
+        int sum = 0;
+        for (int row = 0; row < view.getRows(); row++)
+            for (int col = 0; col < view.getCols(); col++)
+                sum += view.getCell(row, col);
+        return sum;
+    }
+
+    /**
+     * Toggles the flag of a hidden location, every other call removes it
+     */
+    @Benchmark
+    public long placeFlag() {
+        return game.placeFlag(flagRow, flagCol).getFlagCount();
+    }
+}
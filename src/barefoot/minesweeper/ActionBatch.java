@@ -0,0 +1,72 @@
+package barefoot.minesweeper;
+
+import java.util.Arrays;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A list of sweeps and flags made as one decision, see
+ * GameSession.takeAutomatedActions(). The actions are made in the order
+ * they were added, and the batch stops at the first bomb.
+ * A batch can be cleared and reused for the next decision.
+ */
+public class ActionBatch {
+    private int[] commands = new int[16];
+    private int[] rows = new int[16];
+    private int[] cols = new int[16];
+    private int size;
+
+    /**
+     * Adds an action to the batch
+     * @param command int as represented by the Action constants in Constants
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return ActionBatch this batch
+     */
+    public ActionBatch add(int command, int row, int col) {
+        if (size == commands.length) {
+            commands = Arrays.copyOf(commands, size * 2);
+            rows = Arrays.copyOf(rows, size * 2);
+            cols = Arrays.copyOf(cols, size * 2);
+        }
+        commands[size] = command;
+        rows[size] = row;
+        cols[size++] = col;
+        return this;
+    }
+
+    public ActionBatch sweep(int row, int col) {
+        return add(ACTION_SWEEP, row, col);
+    }
+
+    public ActionBatch flag(int row, int col) {
+        return add(ACTION_FLAG, row, col);
+    }
+
+    /**
+     * Removes all actions, so the batch can be reused
+     */
+    public void clear() {
+        size = 0;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int getCommand(int i) {
+        return commands[i];
+    }
+
+    public int getRow(int i) {
+        return rows[i];
+    }
+
+    public int getCol(int i) {
+        return cols[i];
+    }
+}
@@ -0,0 +1,122 @@
+package barefoot.minesweeper;
+
+import java.util.Arrays;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A MineField stored in plain matrices, one value per location.
+ * Easy to follow and to inspect in a debugger.
+ */
+public class ArrayMineField implements MineField {
+    //game matrix, true = bomb, false = no bomb
+    private final boolean[][] gameMatrix;
+    //the probability matrix, 0 = bomb, -1 = no bomb in sight, 1-8 = adjecent bombs
+    private final int[][] probabilityMatrix;
+    //player cells, one byte per location row by row, see the CELL constants in Constants
+    private final byte[] playerCells;
+
+    private final int rows;
+    private final int cols;
+    private int bombs;
+
+    /**
+     * Constructs an empty field without bombs
+     * @param rows int number of rows
+     * @param cols int number of columns
+     */
+    public ArrayMineField(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        gameMatrix = new boolean[rows][cols];
+        probabilityMatrix = new int[rows][cols];
+        playerCells = new byte[rows * cols];
+        Arrays.fill(playerCells, CELL_HIDDEN);
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public void placeBomb(int row, int col) {
+        if (!gameMatrix[row][col])
+            bombs++;
+        gameMatrix[row][col] = true;
+    }
+
+    @Override
+    public long getSafeLocations() {
+        return (long) rows * cols - bombs;
+    }
+
+    @Override
+    public void clear() {
+        for (boolean[] row : gameMatrix)
+            Arrays.fill(row, false);
+        Arrays.fill(playerCells, CELL_HIDDEN);
+        bombs = 0;
+    }
+
+    @Override
+    public void countAdjacentBombs() {
+        for (int i = 0; i < rows; i++) {
+            for (int j = 0; j < cols; j++) {
+                int bombsFound = 0;
+                if (!gameMatrix[i][j]) {
+                    for (int k = i-1; k <= i+1; k++) {
+                        for (int l = j-1; l <= j+1; l++) {
+                            if(k >= 0 && l >= 0)
+                                if (k < rows && l < cols)
+                                    bombsFound += gameMatrix[k][l] ? 1 : 0;
+                        }
+                    }
+                    bombsFound = bombsFound == 0 ? -1 : bombsFound;
+                }
+                probabilityMatrix[i][j] = bombsFound;
+            }
+        }
+    }
+
+    @Override
+    public boolean isBomb(int row, int col) {
+        return gameMatrix[row][col];
+    }
+
+    @Override
+    public int getProbability(int row, int col) {
+        return probabilityMatrix[row][col];
+    }
+
+    @Override
+    public boolean isRevealed(int row, int col) {
+        byte cell = playerCells[row * cols + col];
+        return cell != CELL_HIDDEN && cell != CELL_FLAGGED;
+    }
+
+    @Override
+    public void reveal(int row, int col) {
+        playerCells[row * cols + col] = (byte) probabilityMatrix[row][col];
+    }
+
+    @Override
+    public boolean isFlagged(int row, int col) {
+        return playerCells[row * cols + col] == CELL_FLAGGED;
+    }
+
+    @Override
+    public void setFlagged(int row, int col, boolean flagged) {
+        playerCells[row * cols + col] = flagged ? CELL_FLAGGED : CELL_HIDDEN;
+    }
+
+    @Override
+    public byte getCell(int row, int col) {
+        return playerCells[row * cols + col];
+    }
+}
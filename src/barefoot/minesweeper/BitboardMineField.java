@@ -0,0 +1,180 @@
+package barefoot.minesweeper;
+
+import java.util.Arrays;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A MineField stored as packed bitsets, one bit per location.
+ * Each row starts on a new long, so a row is stride longs wide and the
+ * bit for a location is found at word row * stride + col / 64.
+ * The number of adjacent bombs is kept bit sliced in four bitsets, bit
+ * n of the count is found in adjacentBits[n]. The counts are calculated
+ * 64 locations at a time by shifting the bomb rows and adding them.
+ * Compared to ArrayMineField this uses seven bits per location instead of
+ * a boolean, an int and a boxed Double, which is a lot less memory when
+ * many games are played at once.
+ */
+public class BitboardMineField implements MineField {
+    private static final int COUNT_BITS = 4;
+
+    private final int rows;
+    private final int cols;
+    //Number of longs in each row
+    private final int stride;
+    private int bombCount;
+
+    private final long[] bombs;
+    private final long[] revealed;
+    private final long[] flags;
+    private final long[][] adjacentBits;
+
+    /**
+     * Constructs an empty field without bombs
+     * @param rows int number of rows
+     * @param cols int number of columns
+     */
+    public BitboardMineField(int rows, int cols) {
+        this.rows = rows;
+        this.cols = cols;
+        stride = (cols + 63) >>> 6;
+        int words = rows * stride;
+        bombs = new long[words];
+        revealed = new long[words];
+        flags = new long[words];
+        adjacentBits = new long[COUNT_BITS][words];
+    }
+
+    private int word(int row, int col) {
+        return row * stride + (col >>> 6);
+    }
+
+    private static boolean isSet(long[] bits, int word, int col) {
+        return (bits[word] & (1L << col)) != 0;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    @Override
+    public void placeBomb(int row, int col) {
+        int word = word(row, col);
+        if (!isSet(bombs, word, col))
+            bombCount++;
+        bombs[word] |= 1L << col;
+    }
+
+    @Override
+    public long getSafeLocations() {
+        return (long) rows * cols - bombCount;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(bombs, 0);
+        Arrays.fill(revealed, 0);
+        Arrays.fill(flags, 0);
+        bombCount = 0;
+    }
+
+    /**
+     * Adds the eight neighbour rows of every row into the bit sliced counters.
+     * For each word of a row, the neighbours to the west are the bomb row shifted
+     * one location to the east and the other way around. The bit crossing a word
+     * border is carried over from the neighbouring word.
+     */
+    @Override
+    public void countAdjacentBombs() {
+        for (long[] bits : adjacentBits)
+            Arrays.fill(bits, 0);
+        for (int row = 0; row < rows; row++) {
+            for (int w = 0; w < stride; w++) {
+                int target = row * stride + w;
+                for (int source = row - 1; source <= row + 1; source++) {
+                    if (source < 0 || source >= rows)
+                        continue;
+                    int base = source * stride;
+                    long center = bombs[base + w];
+                    long previous = w > 0 ? bombs[base + w - 1] : 0;
+                    long next = w < stride - 1 ? bombs[base + w + 1] : 0;
+                    add(target, (center << 1) | (previous >>> 63));
+                    add(target, (center >>> 1) | (next << 63));
+                    if (source != row)
+                        add(target, center);
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds a one bit value to each of the 64 counters in the word, a ripple carry
+     * adder working on all bits at once.
+     */
+    private void add(int word, long value) {
+        long carry = value;
+        for (int bit = 0; bit < COUNT_BITS && carry != 0; bit++) {
+            long sum = adjacentBits[bit][word] ^ carry;
+            carry &= adjacentBits[bit][word];
+            adjacentBits[bit][word] = sum;
+        }
+    }
+
+    @Override
+    public boolean isBomb(int row, int col) {
+        return isSet(bombs, word(row, col), col);
+    }
+
+    @Override
+    public int getProbability(int row, int col) {
+        int word = word(row, col);
+        if (isSet(bombs, word, col))
+            return 0;
+        int count = 0;
+        for (int bit = 0; bit < COUNT_BITS; bit++)
+            count |= (int) ((adjacentBits[bit][word] >>> col) & 1) << bit;
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public boolean isRevealed(int row, int col) {
+        return isSet(revealed, word(row, col), col);
+    }
+
+    @Override
+    public void reveal(int row, int col) {
+        int word = word(row, col);
+        revealed[word] |= 1L << col;
+        flags[word] &= ~(1L << col);
+    }
+
+    @Override
+    public boolean isFlagged(int row, int col) {
+        return isSet(flags, word(row, col), col);
+    }
+
+    @Override
+    public void setFlagged(int row, int col, boolean flagged) {
+        int word = word(row, col);
+        if (flagged)
+            flags[word] |= 1L << col;
+        else
+            flags[word] &= ~(1L << col);
+    }
+
+    @Override
+    public byte getCell(int row, int col) {
+        int word = word(row, col);
+        if (isSet(flags, word, col))
+            return CELL_FLAGGED;
+        if (!isSet(revealed, word, col))
+            return CELL_HIDDEN;
+        return (byte) getProbability(row, col);
+    }
+}
@@ -0,0 +1,73 @@
+package barefoot.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * The locations changed by the last sweep or flag, and the number of flags
+ * on the board after it. A player that has seen the board before the action
+ * only needs to look at these locations to be up to date.
+ * The engine reuses the same instance for every action, so the content is
+ * only valid until the next sweep or flag. Copy what is needed to keep it longer.
+ */
+public class BoardChange {
+    private int[] rows = new int[16];
+    private int[] cols = new int[16];
+    private int count;
+    private long flagCount;
+    private long version;
+
+    /**
+     * @return int number of locations changed by the action, 0 if nothing changed
+     */
+    public int getCount() {
+        return count;
+    }
+
+    /**
+     * @param i int index of the change, 0 to getCount() - 1
+     * @return int row of the changed location
+     */
+    public int getRow(int i) {
+        return rows[i];
+    }
+
+    /**
+     * @param i int index of the change, 0 to getCount() - 1
+     * @return int column of the changed location
+     */
+    public int getCol(int i) {
+        return cols[i];
+    }
+
+    /**
+     * @return long number of flags on the board after the action
+     */
+    public long getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return long version of the board after the action, see BoardView.getVersion()
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    void clear() {
+        count = 0;
+    }
+
+    void add(int row, int col) {
+        if (count == rows.length) {
+            rows = Arrays.copyOf(rows, count * 2);
+            cols = Arrays.copyOf(cols, count * 2);
+        }
+        rows[count] = row;
+        cols[count++] = col;
+    }
+
+    void finish(long flagCount, long version) {
+        this.flagCount = flagCount;
+        this.version = version;
+    }
+}
@@ -0,0 +1,236 @@
+package barefoot.minesweeper;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A file with a large number of fixed boards, so that every bot can be
+ * measured on the same boards. Boards of any size can be mixed in the
+ * same corpus. The file is memory mapped and every board is found
+ * through an index, so a board is read without parsing any text and
+ * without touching the file system once the corpus is open.
+ * The file holds a header, the boards one after the other and last the index:
+ * <pre>
+ * header: int MAGIC, int VERSION, int number of boards, long position of the index
+ * board:  one bit per location, row by row, the lowest bit of a byte first, 1 for a bomb
+ * index:  long position of the board, int rows, int cols, int bombs, for every board
+ * </pre>
+ * Play the boards of a corpus with:
+ * <pre>
+ * BoardCorpus corpus = BoardCorpus.open(path);
+ * for (int id = 0; id &lt; corpus.size(); id++)
+ *     session.newGame(corpus.newEngine(id), corpus.getBombs(id));
+ * </pre>
+ */
+public class BoardCorpus {
+    static final int MAGIC = 0x4D534243; //"MSBC"
+    static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int INDEX_ENTRY_SIZE = 20;
+
+    private final ByteBuffer data;
+    private final int size;
+    private final int index;
+
+    /**
+     * Maps a corpus into memory
+     * @param file Path to a corpus written by BoardCorpus.Writer, at most 2 GB
+     * @return BoardCorpus ready to be read from any number of threads
+     * @throws IOException if the file can not be read or is not a corpus
+     */
+    public static BoardCorpus open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Error, the corpus is larger than 2 GB: " + file);
+            MappedByteBuffer data = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new BoardCorpus(data);
+        }
+    }
+
+    /**
+     * @param data ByteBuffer holding a whole corpus, from the header. Only read with absolute positions.
+     * @throws IOException if the corpus is broken
+     */
+    public BoardCorpus(ByteBuffer data) throws IOException {
+        this.data = data;
+        if (data.limit() < HEADER_SIZE || data.getInt(0) != MAGIC)
+            throw new IOException("Error, not a board corpus");
+        int version = data.getInt(4);
+        if (version != VERSION)
+            throw new IOException("Error, unknown version of the board corpus: " + version);
+        size = data.getInt(8);
+        long indexPosition = data.getLong(12);
+        if (size < 0 || indexPosition < HEADER_SIZE || indexPosition + (long) size * INDEX_ENTRY_SIZE > data.limit())
+            throw new IOException("Error, the index of the board corpus is broken");
+        index = (int) indexPosition;
+    }
+
+    /**
+     * @return int number of boards in the corpus
+     */
+    public int size() {
+        return size;
+    }
+
+    public int getRows(int id) {
+        return data.getInt(entry(id) + 8);
+    }
+
+    public int getCols(int id) {
+        return data.getInt(entry(id) + 12);
+    }
+
+    public int getBombs(int id) {
+        return data.getInt(entry(id) + 16);
+    }
+
+    /**
+     * Get the difficulty of a board
+     * @param id int number of the board, 0 - size()-1
+     * @return int[] rows, columns and bombs, as the difficulty constants in Constants.java
+     */
+    public int[] getDifficulty(int id) {
+        return new int[]{getRows(id), getCols(id), getBombs(id)};
+    }
+
+    /**
+     * Places the bombs of a board in a field. The bytes without bombs are skipped,
+     * so a sparse board is read about eight locations at a time.
+     * @param id int number of the board, 0 - size()-1
+     * @param field MineField an empty field of the size of the board
+     */
+    public void placeBombs(int id, MineField field) {
+        int rows = getRows(id), cols = getCols(id);
+        if (field.getRows() != rows || field.getCols() != cols)
+            throw new IllegalArgumentException(String.format("Error, board %d is %dx%d, the field is %dx%d",
+                    id, rows, cols, field.getRows(), field.getCols()));
+        int position = (int) data.getLong(entry(id));
+        int bytes = bitmapSize(rows, cols);
+        for (int i = 0; i < bytes; i++) {
+            int bits = data.get(position + i) & 0xFF;
+            while (bits != 0) {
+                int location = (i << 3) + Integer.numberOfTrailingZeros(bits);
+                field.placeBomb(location / cols, location % cols);
+                bits &= bits - 1;
+            }
+        }
+    }
+
+    /**
+     * Creates a game on a board of the corpus. The number of the board is used
+     * as the seed of the game, so the random numbers of the player follow the board.
+     * @param id int number of the board, 0 - size()-1
+     * @return Engine for playing the board
+     */
+    public Engine newEngine(int id) {
+        MineField field = Engine.createMineField(getRows(id), getCols(id));
+        placeBombs(id, field);
+        field.countAdjacentBombs();
+        return Engine.withPlacedBombs(field, id);
+    }
+
+    private int entry(int id) {
+        if (id < 0 || id >= size)
+            throw new IndexOutOfBoundsException("Error, no board " + id + " in a corpus of " + size);
+        return index + id * INDEX_ENTRY_SIZE;
+    }
+
+    private static int bitmapSize(int rows, int cols) {
+        return (int) (((long) rows * cols + 7) >>> 3);
+    }
+
+    /**
+     * Writes a corpus. The boards are written as they are added, the index
+     * is kept in memory and written when the writer is closed.
+     */
+    public static class Writer implements Closeable {
+        private final Path file;
+        private final DataOutputStream out;
+        private final DataOutputStream index;
+        private final ByteArrayOutputStream indexBuffer = new ByteArrayOutputStream();
+        private long position = HEADER_SIZE;
+        private int size;
+
+        /**
+         * @param file Path to the corpus, an existing file is replaced
+         * @throws IOException if the file can not be written
+         */
+        public Writer(Path file) throws IOException {
+            this.file = file;
+            OutputStream stream = Files.newOutputStream(file);
+            out = new DataOutputStream(new BufferedOutputStream(stream, 1 << 16));
+            out.write(new byte[HEADER_SIZE]);
+            index = new DataOutputStream(indexBuffer);
+        }
+
+        /**
+         * Adds the bombs of a field as the next board
+         * @param field MineField with the bombs placed
+         * @return int number of the board in the corpus
+         * @throws IOException if the file can not be written
+         */
+        public int add(MineField field) throws IOException {
+            int rows = field.getRows(), cols = field.getCols();
+            if (position + bitmapSize(rows, cols) > Integer.MAX_VALUE)
+                throw new IOException("Error, the corpus can not be larger than 2 GB");
+            int bombs = 0, bits = 0;
+            long locations = (long) rows * cols;
+            for (long i = 0; i < locations; i++) {
+                if (field.isBomb((int) (i / cols), (int) (i % cols))) {
+                    bits |= 1 << (i & 7);
+                    bombs++;
+                }
+                if ((i & 7) == 7 || i == locations - 1) {
+                    out.write(bits);
+                    bits = 0;
+                }
+            }
+            index.writeLong(position);
+            index.writeInt(rows);
+            index.writeInt(cols);
+            index.writeInt(bombs);
+            position += bitmapSize(rows, cols);
+            return size++;
+        }
+
+        /**
+         * Adds a board with the bombs placed from a seed, the same board as a game with the seed gets
+         * @param rows int number of rows of the board
+         * @param cols int number of columns of the board
+         * @param bombs int number of bombs on the board
+         * @param seed long seed for the placement of the bombs
+         * @return int number of the board in the corpus
+         * @throws IOException if the file can not be written
+         */
+        public int add(int rows, int cols, int bombs, long seed) throws IOException {
+            MineField field = new BitboardMineField(rows, cols);
+            Engine.placeRandomBombs(field, bombs, seed);
+            return add(field);
+        }
+
+        /**
+         * Writes the index and the header
+         * @throws IOException if the file can not be written
+         */
+        @Override
+        public void close() throws IOException {
+            indexBuffer.writeTo(out);
+            out.close();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            header.putInt(MAGIC).putInt(VERSION).putInt(size).putLong(position).flip();
+            try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                channel.write(header, 0);
+            }
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package barefoot.minesweeper;
+
+/**
+ * Is told about every sweep or flag that changes the board.
+ * Register with GameSession.addBoardListener() or Engine.addBoardListener().
+ */
+public interface BoardListener {
+    /**
+     * Called after every sweep or flag that changed at least one location.
+     * The listener is called on the thread that made the action.
+     * @param change BoardChange with the changed locations, only valid during the call
+     */
+    void boardChanged(BoardChange change);
+}
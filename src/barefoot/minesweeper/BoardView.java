@@ -0,0 +1,36 @@
+package barefoot.minesweeper;
+
+/**
+ * A read only view of the game board as seen by the player.
+ * The view is not a copy, it always shows the current state of the game,
+ * so it can be read on every move without any allocation.
+ * Each location is one of the CELL constants in Constants.java
+ * or 1-8 for the number of adjacent bombs.
+ * @see Constants
+ */
+public interface BoardView {
+    /**
+     * @return int number of rows on the board
+     */
+    int getRows();
+
+    /**
+     * @return int number of columns on the board
+     */
+    int getCols();
+
+    /**
+     * Get a location as seen by the player
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return byte CELL_HIDDEN, CELL_FLAGGED, CELL_BOMB, CELL_CLEAR or 1-8 adjacent bombs
+     */
+    byte getCell(int row, int col);
+
+    /**
+     * The version is increased every time the board changes. A consumer can
+     * save the version and compare it later to find out if anything has changed.
+     * @return long the version of the board
+     */
+    long getVersion();
+}
@@ -0,0 +1,282 @@
+package barefoot.minesweeper;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.SocketTimeoutException;
+import java.net.StandardSocketOptions;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * The messages between a runner and a bot playing in an other process, see
+ * RemotePlayer for the runner and RemoteSession for the bot. The runner holds
+ * the game, the bot only sees the locations that changed.
+ * Every message is the length of the rest of the message in 4 bytes, the type
+ * in 1 byte, and the content:
+ * <pre>
+ * HELLO    bot to runner: MAGIC version token rows cols bombs+1
+ * GAME     runner to bot: rows cols bombs+1 seed status flags cells
+ * ACTIONS  bot to runner: NONE | SINGLE action | BATCH size action*
+ * CHANGE   runner to bot: status flags cells
+ * END      runner to bot: status turns decisions seed, asks the bot to play again
+ * ANSWER   bot to runner: 1 to play again, 0 to stop
+ *
+ * action:  ACTION_SWEEP_CODE row col | ACTION_FLAG_CODE row col
+ * cells:   count (row * cols + col  value+1)*
+ * </pre>
+ * The magic, the token, the seed and the value of a location are fixed size,
+ * every other number is a varint as in GameRecorder. The token is given to a
+ * bot process when it is started, so the runner knows which process connected. A GAME sends every location that is
+ * not hidden, a CHANGE only the locations changed by the actions of the bot.
+ * A game is played by the bot sending ACTIONS once per move, and the runner
+ * answering with the CHANGE, so a move is one round trip.
+ * Nagle's algorithm is off, both ends always wait for the answer before they
+ * do anything else. Without a timeout the channel is blocking. With a timeout
+ * it is polled with a Selector, and a message that is not sent or received in
+ * time fails with a SocketTimeoutException. The channel is closed when it
+ * fails or the other end closes it, every later message fails at once.
+ */
+class BotProtocol implements Closeable {
+    static final int MAGIC = 0x4D534250; //"MSBP"
+    static final int VERSION = 1;
+    static final int HELLO = 'H';
+    static final int GAME = 'G';
+    static final int ACTIONS = 'A';
+    static final int CHANGE = 'C';
+    static final int END = 'E';
+    static final int ANSWER = 'R';
+    static final int NONE = 0;
+    static final int SINGLE = 1;
+    static final int BATCH = 2;
+    static final int ACTION_SWEEP_CODE = 1;
+    static final int ACTION_FLAG_CODE = 2;
+    //Longest message that is sent or received, the board of a game of a few million locations
+    static final int MAX_MESSAGE_LENGTH = 1 << 26;
+
+    private final SocketChannel channel;
+    //Time to send or receive a message in, in milliseconds, 0 to wait for ever
+    private final long timeout;
+    //Waits for the channel when there is a timeout, null otherwise
+    private final Selector selector;
+    private final SelectionKey key;
+    //System.currentTimeMillis() the message being sent or received must be done by
+    private long deadline;
+    //The message being written, the length is filled in by send()
+    private ByteBuffer out = ByteBuffer.allocateDirect(1 << 12);
+    //Bytes read from the channel, between position and limit
+    private ByteBuffer in = ByteBuffer.allocateDirect(1 << 12);
+    //Position in the input right after the message being read
+    private int messageEnd;
+
+    BotProtocol(SocketChannel channel) throws IOException {
+        this(channel, 0);
+    }
+
+    /**
+     * @param channel SocketChannel connected to the other end
+     * @param timeout long time to send or receive a message in, in milliseconds, 0 to wait for ever
+     * @throws IOException if the channel can not be set up
+     */
+    BotProtocol(SocketChannel channel, long timeout) throws IOException {
+        this.channel = channel;
+        this.timeout = timeout;
+        channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+        if (timeout > 0) {
+            channel.configureBlocking(false);
+            selector = Selector.open();
+            key = channel.register(selector, 0);
+        } else {
+            channel.configureBlocking(true);
+            selector = null;
+            key = null;
+        }
+        in.limit(0);
+    }
+
+    void begin(int type) {
+        out.clear();
+        out.position(4);
+        out.put((byte) type);
+    }
+
+    void putVarint(long value) {
+        ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) (value & 0x7F | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    void putInt(int value) {
+        ensure(4);
+        out.putInt(value);
+    }
+
+    void putLong(long value) {
+        ensure(8);
+        out.putLong(value);
+    }
+
+    void putByte(int value) {
+        ensure(1);
+        out.put((byte) value);
+    }
+
+    /**
+     * Adds a location of the board to the message, with its value
+     */
+    void putCell(BoardView board, int row, int col) {
+        putVarint(row * board.getCols() + col);
+        putByte(board.getCell(row, col) - CELL_CLEAR);
+    }
+
+    private void ensure(int bytes) {
+        if (out.remaining() >= bytes)
+            return;
+        ByteBuffer larger = ByteBuffer.allocateDirect(Math.max(out.capacity() * 2, out.position() + bytes));
+        out.flip();
+        out = larger.put(out);
+    }
+
+    void send() throws IOException {
+        if (out.position() - 4 > MAX_MESSAGE_LENGTH)
+            throw new IOException("Error, message of length " + (out.position() - 4) + " is too long");
+        out.putInt(0, out.position() - 4);
+        out.flip();
+        deadline = System.currentTimeMillis() + timeout;
+        try {
+            while (out.hasRemaining())
+                if (channel.write(out) == 0)
+                    await(SelectionKey.OP_WRITE);
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Waits for the next message. What is left unread of the previous message is skipped.
+     * @return int type of the message, -1 if the connection was closed
+     * @throws IOException if the connection is closed in the middle of a message, or the message is malformed
+     */
+    int receive() throws IOException {
+        if (!channel.isOpen())
+            throw new ClosedChannelException();
+        deadline = System.currentTimeMillis() + timeout;
+        try {
+            in.position(messageEnd);
+            if (!fill(4)) {
+                close();
+                if (in.hasRemaining())
+                    throw new EOFException("Connection closed in the middle of a message");
+                return -1;
+            }
+            int length = in.getInt(in.position());
+            if (length < 1 || length > MAX_MESSAGE_LENGTH)
+                throw new IOException("Malformed message of length " + length);
+            if (!fill(4 + length))
+                throw new EOFException("Connection closed in the middle of a message");
+            in.position(in.position() + 4);
+            messageEnd = in.position() + length;
+            return in.get();
+        } catch (IOException e) {
+            close();
+            throw e;
+        }
+    }
+
+    /**
+     * Reads from the channel until the bytes are available
+     * @return boolean false if the connection was closed first
+     */
+    private boolean fill(int bytes) throws IOException {
+        while (in.remaining() < bytes) {
+            in.compact();
+            if (in.capacity() < bytes) {
+                in.flip();
+                in = ByteBuffer.allocateDirect((int) Math.min(Long.highestOneBit(bytes) << 1, 4L + MAX_MESSAGE_LENGTH)).put(in);
+            }
+            int read = channel.read(in);
+            in.flip();
+            if (read < 0)
+                return false;
+            if (read == 0)
+                await(SelectionKey.OP_READ);
+        }
+        return true;
+    }
+
+    /**
+     * Waits until the channel is ready, a non-blocking channel only
+     * @param operation int SelectionKey.OP_READ or SelectionKey.OP_WRITE
+     * @throws SocketTimeoutException if the message is not done by the deadline
+     */
+    private void await(int operation) throws IOException {
+        long remaining = deadline - System.currentTimeMillis();
+        if (remaining <= 0)
+            throw new SocketTimeoutException("Error, no answer within " + timeout + " ms");
+        key.interestOps(operation);
+        selector.select(remaining);
+        selector.selectedKeys().clear();
+        if (Thread.currentThread().isInterrupted())
+            throw new InterruptedIOException("Error, interrupted while waiting for an answer");
+    }
+
+    long getVarint() throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = getByte();
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0)
+                return value;
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    int getInt() throws IOException {
+        check(4);
+        return in.getInt();
+    }
+
+    long getLong() throws IOException {
+        check(8);
+        return in.getLong();
+    }
+
+    int getByte() throws IOException {
+        check(1);
+        return in.get();
+    }
+
+    private void check(int bytes) throws IOException {
+        if (in.position() + bytes > messageEnd)
+            throw new IOException("Message too short");
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+        if (selector != null)
+            selector.close();
+    }
+
+    static int encodeCommand(int command) {
+        return command == ACTION_SWEEP ? ACTION_SWEEP_CODE : ACTION_FLAG_CODE;
+    }
+
+    static int decodeCommand(int code) throws IOException {
+        if (code == ACTION_SWEEP_CODE)
+            return ACTION_SWEEP;
+        if (code == ACTION_FLAG_CODE)
+            return ACTION_FLAG;
+        throw new IOException("Unknown action " + code);
+    }
+}
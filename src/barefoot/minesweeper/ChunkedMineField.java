@@ -0,0 +1,240 @@
+package barefoot.minesweeper;
+
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A MineField for boards far larger than what fits in memory.
+ * The board is divided into chunks of 64 x 64 locations. A chunk is not
+ * generated until a location in or next to it is first swept or flagged, and its
+ * bombs are placed from the seed of the field and the position of the chunk.
+ * The same seed always gives the same board, no matter in which order the
+ * chunks are generated. Memory grows with the explored part of the board only.
+ * The number of adjacent bombs is counted when it is asked for.
+ * Use Engine.withPlacedBombs() to play on the field. Methods working on the
+ * whole board, such as Engine.getPlayerRevealedMatrix(), should not be used.
+ */
+public class ChunkedMineField implements MineField {
+    //Chunks are CHUNK_SIZE x CHUNK_SIZE locations, one long for each row of a chunk
+    public static final int CHUNK_SIZE = 64;
+    private static final int CHUNK_SHIFT = 6;
+    private static final int CHUNK_MASK = CHUNK_SIZE - 1;
+
+    private final int rows;
+    private final int cols;
+    private final long seed;
+    //Number of bombs in each chunk
+    private final int bombsPerChunk;
+    private final HashMap<Long, Chunk> chunks = new HashMap<>();
+    //Locations to shuffle when a chunk is generated, reused for every chunk
+    private final short[] shuffled = new short[CHUNK_SIZE * CHUNK_SIZE];
+    //The chunk used last, most lookups are for the same chunk as the one before
+    private long lastKey = -1;
+    private Chunk lastChunk;
+
+    /**
+     * Constructs a field where the bombs are generated when needed
+     * @param rows int number of rows, a multiple of CHUNK_SIZE
+     * @param cols int number of columns, a multiple of CHUNK_SIZE
+     * @param density double share of the locations with a bomb, 0 - 1
+     * @param seed long seed for the placement of the bombs
+     */
+    public ChunkedMineField(int rows, int cols, double density, long seed) {
+        if (rows <= 0 || cols <= 0 || (rows & CHUNK_MASK) != 0 || (cols & CHUNK_MASK) != 0)
+            throw new IllegalArgumentException(String.format("Error, %d x %d is not a multiple of the chunk size %d", rows, cols, CHUNK_SIZE));
+        if (density < 0 || density > 1)
+            throw new IllegalArgumentException("Error, density must be between 0 and 1: " + density);
+        this.rows = rows;
+        this.cols = cols;
+        this.seed = seed;
+        bombsPerChunk = (int) Math.round(density * CHUNK_SIZE * CHUNK_SIZE);
+    }
+
+    /**
+     * The locations of a chunk, one bit per location. Revealed locations
+     * and flags are not allocated until the player touches the chunk.
+     */
+    private static class Chunk {
+        final long[] bombs = new long[CHUNK_SIZE];
+        long[] revealed;
+        long[] flags;
+    }
+
+    private Chunk chunk(int row, int col) {
+        return findChunk(row, col, true);
+    }
+
+    /**
+     * Finds the chunk holding a location
+     * @param row int row of the location
+     * @param col int column of the location
+     * @param generate boolean true to generate the chunk if it does not exist yet
+     * @return Chunk holding the location, null if it does not exist and generate is false
+     */
+    private Chunk findChunk(int row, int col, boolean generate) {
+        long key = ((long) (row >>> CHUNK_SHIFT) << 32) | (col >>> CHUNK_SHIFT);
+        if (key == lastKey)
+            return lastChunk;
+        Chunk chunk = chunks.get(key);
+        if (chunk == null) {
+            if (!generate)
+                return null;
+            chunk = generateChunk(key);
+            chunks.put(key, chunk);
+        }
+        lastKey = key;
+        lastChunk = chunk;
+        return chunk;
+    }
+
+    /**
+     * Places the bombs of a chunk with a partial Fisher-Yates shuffle,
+     * seeded from the seed of the field and the position of the chunk.
+     */
+    private Chunk generateChunk(long key) {
+        Chunk chunk = new Chunk();
+        SplittableRandom random = new SplittableRandom(seed ^ (key * 0x9E3779B97F4A7C15L));
+        int locations = shuffled.length;
+        for (int i = 0; i < locations; i++)
+            shuffled[i] = (short) i;
+        for (int i = 0; i < bombsPerChunk; i++) {
+            int j = i + random.nextInt(locations - i);
+            int location = shuffled[j];
+            shuffled[j] = shuffled[i];
+            chunk.bombs[location >>> CHUNK_SHIFT] |= 1L << location;
+        }
+        return chunk;
+    }
+
+    /**
+     * @return int number of chunks generated so far
+     */
+    public int getGeneratedChunks() {
+        return chunks.size();
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    @Override
+    public int getRows() {
+        return rows;
+    }
+
+    @Override
+    public int getCols() {
+        return cols;
+    }
+
+    /**
+     * Not supported, the bombs are generated from the seed
+     */
+    @Override
+    public void placeBomb(int row, int col) {
+        throw new UnsupportedOperationException("The bombs of a ChunkedMineField are generated from the seed");
+    }
+
+    /**
+     * Does nothing, the adjacent bombs are counted when they are asked for
+     */
+    @Override
+    public void countAdjacentBombs() {
+    }
+
+    /**
+     * Throws all generated chunks away, the board is generated again from the same seed
+     */
+    @Override
+    public void clear() {
+        chunks.clear();
+        lastKey = -1;
+        lastChunk = null;
+    }
+
+    @Override
+    public long getSafeLocations() {
+        return Long.MAX_VALUE;
+    }
+
+    @Override
+    public boolean isBomb(int row, int col) {
+        if (row < 0 || col < 0 || row >= rows || col >= cols)
+            return false;
+        return (chunk(row, col).bombs[row & CHUNK_MASK] & (1L << col)) != 0;
+    }
+
+    /**
+     * Counts the adjacent bombs. Inside a chunk the three locations of a row
+     * are counted at once, at the edge of a chunk one location at a time.
+     */
+    @Override
+    public int getProbability(int row, int col) {
+        if (isBomb(row, col))
+            return 0;
+        int count = 0;
+        int local = col & CHUNK_MASK;
+        for (int k = row - 1; k <= row + 1; k++) {
+            if (k < 0 || k >= rows)
+                continue;
+            if (local > 0 && local < CHUNK_MASK) {
+                long bits = chunk(k, col).bombs[k & CHUNK_MASK] >>> (local - 1);
+                count += Long.bitCount(bits & 7);
+            } else {
+                for (int l = col - 1; l <= col + 1; l++)
+                    count += isBomb(k, l) ? 1 : 0;
+            }
+        }
+        return count == 0 ? -1 : count;
+    }
+
+    @Override
+    public boolean isRevealed(int row, int col) {
+        Chunk chunk = findChunk(row, col, false);
+        if (chunk == null)
+            return false;
+        long[] revealed = chunk.revealed;
+        return revealed != null && (revealed[row & CHUNK_MASK] & (1L << col)) != 0;
+    }
+
+    @Override
+    public void reveal(int row, int col) {
+        Chunk chunk = chunk(row, col);
+        if (chunk.revealed == null)
+            chunk.revealed = new long[CHUNK_SIZE];
+        chunk.revealed[row & CHUNK_MASK] |= 1L << col;
+        if (chunk.flags != null)
+            chunk.flags[row & CHUNK_MASK] &= ~(1L << col);
+    }
+
+    @Override
+    public boolean isFlagged(int row, int col) {
+        Chunk chunk = findChunk(row, col, false);
+        if (chunk == null)
+            return false;
+        long[] flags = chunk.flags;
+        return flags != null && (flags[row & CHUNK_MASK] & (1L << col)) != 0;
+    }
+
+    @Override
+    public void setFlagged(int row, int col, boolean flagged) {
+        Chunk chunk = chunk(row, col);
+        if (chunk.flags == null)
+            chunk.flags = new long[CHUNK_SIZE];
+        if (flagged)
+            chunk.flags[row & CHUNK_MASK] |= 1L << col;
+        else
+            chunk.flags[row & CHUNK_MASK] &= ~(1L << col);
+    }
+
+    @Override
+    public byte getCell(int row, int col) {
+        if (isFlagged(row, col))
+            return CELL_FLAGGED;
+        if (!isRevealed(row, col))
+            return CELL_HIDDEN;
+        return (byte) getProbability(row, col);
+    }
+}
@@ -16,6 +16,13 @@ public class Constants {
     public static final int GAME_LOST = 20;
     public static final int GAME_INPROGRESS = 30;
 
+    //Constants for a location as seen by the player, see BoardView
+    //1-8 = number of adjacent bombs
+    public static final byte CELL_BOMB = 0;
+    public static final byte CELL_CLEAR = -1;
+    public static final byte CELL_HIDDEN = 9;
+    public static final byte CELL_FLAGGED = 10;
+
     //Constants for SweeperBot implementations
     public static final int maxRounds = 2;
     public static final int waitForNextRound = 1000;
@@ -28,6 +35,16 @@ public class Constants {
     public static int ACTION_SWEEP = 100;
     public static int ACTION_FLAG = 200;
 
+    //Constants for how a batch of actions is counted in GameStatistics.turnsTaken, see ActionBatch
+    public static final int BATCH_TURNS_PER_SWEEP = 1;
+    public static final int BATCH_TURNS_PER_BATCH = 2;
+    public static int BATCH_TURNS = BATCH_TURNS_PER_SWEEP;
+
+    //Constants for the storage used by the Engine, see MineField
+    public static final int BACKEND_ARRAY = 1;
+    public static final int BACKEND_BITBOARD = 2;
+    public static int ENGINE_BACKEND = BACKEND_ARRAY;
+
     //Constants for custom board
     public static String CUSTOM_BOARD_FILE_EASY = ""; //"src//testBoardEasy.txt"; //file should be placed in src folder, * for bomb, x for clear
     public static String CUSTOM_BOARD_FILE_MEDIUM = ""; //file should be placed in src folder, * for bomb, x for clear
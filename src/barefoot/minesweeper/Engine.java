@@ -3,6 +3,7 @@ package barefoot.minesweeper;
 import java.io.File;
 import java.io.FileNotFoundException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 import static barefoot.minesweeper.Constants.*;
 
@@ -15,95 +16,232 @@ import static barefoot.minesweeper.Constants.*;
  * @version 1.0
  */
 public class Engine {
-    //game matrix, true = bomb, false = no bomb
-    private final boolean[][] gameMatrix;
-    //the probability matrix, 0 = bomb, -1 = no bomb in sight, 1-8 = adjecent bombs
-    private final int[][] probabilityMatrix;
-    //player matrix, null = not revieled yet, else same as probability matrix
-    private Double[][] playerRevealedMatrix;
+    //Test files parsed so far, by file name and size. A file is only read once.
+    private static final Map<String, boolean[][]> testBoards = new ConcurrentHashMap<>();
+    //Saved for a test file that is missing or broken, so it is not read again
+    private static final boolean[][] NO_TEST_BOARD = new boolean[0][];
+
+    //the storage for bombs, probabilities and what the player has revealed
+    private final MineField field;
+    //true when the player has made the first sweep or flag
+    private boolean started;
+    //increased on every sweep or flag, see BoardView
+    private long version;
+    //read only view of the field for the player, a new view for every game
+    private BoardView boardView;
+    //Number of locations without a bomb, and how many of them the player has revealed
+    private long safeLocations;
+    private long revealedSafeLocations;
+    //true when the player has revealed a bomb
+    private boolean detonated;
+    //status of the game, kept up to date by every sweep
+    private int gameStatus = GAME_INPROGRESS;
+    //Number of flagged locations
+    private long flagCount;
+    //Locations changed by the last sweep or flag, reused for every action
+    private final BoardChange lastChange = new BoardChange();
+    private final List<BoardListener> listeners = new ArrayList<>();
 
     //Number of rows in matrix
     private final int rows;
     //Number of cols in matrix
     private final int cols;
-    //Data structure to handle deep recursion
-    private final Stack<int[]> latestPositions;
+    //Work queue for sweeping open areas, row and column pairs, reused between sweeps
+    private int[] sweepQueue = new int[64];
+    //Locations shuffled when the bombs are placed, kept once the engine has been reset
+    private int[] shuffled;
     //Data about the current game
     private final GameStatistics gameStats;
+    //Seed for the placement of the bombs, the same seed gives the same board
+    private long seed;
+    //Number of bombs placed by the engine, -1 for a field prepared with its bombs
+    private final int bombs;
+    //true if the bombs were placed from the seed, false for a test file or a prepared field
+    private boolean bombsFromSeed;
 
     /**
-     * Constructs an engine for playing a game of MineSweeper
+     * Constructs an engine for playing a game of MineSweeper.
+     * The storage is selected by Constants.ENGINE_BACKEND.
      * @param matrixRows int determines the number of rows of the matrix
      * @param matrixCols int determines the number of columns of the matrix
      * @param bombs int determines the number of bombs that are placed in the matrix
      */
     public Engine(int matrixRows, int matrixCols, int bombs) {
-        rows = matrixRows; cols = matrixCols;
-        latestPositions = new Stack<>();
-        gameMatrix = generateGameMatrix(matrixRows, matrixCols, bombs);
-        probabilityMatrix = generateProbabilityMatrix(matrixRows, matrixCols);
+        this(createMineField(matrixRows, matrixCols), bombs);
+    }
+
+    /**
+     * Constructs an engine for playing a game of MineSweeper. The bombs
+     * are placed from the seed, so the same seed always gives the same board.
+     * @param matrixRows int determines the number of rows of the matrix
+     * @param matrixCols int determines the number of columns of the matrix
+     * @param bombs int determines the number of bombs that are placed in the matrix
+     * @param seed long seed for the placement of the bombs
+     */
+    public Engine(int matrixRows, int matrixCols, int bombs, long seed) {
+        this(createMineField(matrixRows, matrixCols), bombs, seed);
+    }
+
+    /**
+     * Constructs an engine for playing a game of MineSweeper on the specified field
+     * @param field MineField an empty field, without bombs
+     * @param bombs int determines the number of bombs that are placed in the field
+     */
+    public Engine(MineField field, int bombs) {
+        this(field, bombs, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Constructs an engine for playing a game of MineSweeper on the specified field
+     * @param field MineField an empty field, without bombs
+     * @param bombs int determines the number of bombs that are placed in the field
+     * @param seed long seed for the placement of the bombs
+     */
+    public Engine(MineField field, int bombs, long seed) {
+        this(seed, field, bombs);
+        generateGameMatrix(rows, cols, bombs);
+        field.countAdjacentBombs();
+        safeLocations = field.getSafeLocations();
+    }
+
+    /**
+     * Constructs an engine for a field that already holds its bombs,
+     * for example a ChunkedMineField that generates its bombs when needed.
+     * @param field MineField with the bombs placed and counted
+     * @param seed long seed the field was generated from, saved in the statistics
+     * @return Engine for playing on the field
+     */
+    public static Engine withPlacedBombs(MineField field, long seed) {
+        return new Engine(seed, field, -1);
+    }
+
+    private Engine(long seed, MineField field, int bombs) {
+        this.field = field;
+        this.seed = seed;
+        this.bombs = bombs;
+        rows = field.getRows(); cols = field.getCols();
+        safeLocations = field.getSafeLocations();
         gameStats = new GameStatistics();
+        gameStats.seed = seed;
+        boardView = new PlayerView();
+    }
+
+    /**
+     * Starts a new game on the same engine, with the bombs placed from the seed.
+     * The field, the buffers and the GameStatistics are reused, so a new game
+     * allocates next to nothing. The statistics of the previous game are
+     * cleared, read them before the engine is reset. The board gets a new
+     * BoardView, so a player can tell the games apart. Board listeners stay registered.
+     * @param seed long seed for the placement of the bombs
+     * @throws IllegalStateException if the engine was created with withPlacedBombs()
+     */
+    public void reset(long seed) {
+        if (bombs < 0)
+            throw new IllegalStateException("Error, an engine on a prepared field can not be reset");
+        this.seed = seed;
+        field.clear();
+        if (shuffled == null)
+            shuffled = new int[rows * cols];
+        bombsFromSeed = false;
+        generateGameMatrix(rows, cols, bombs);
+        field.countAdjacentBombs();
+        safeLocations = field.getSafeLocations();
+        revealedSafeLocations = 0;
+        detonated = false;
+        started = false;
+        gameStatus = GAME_INPROGRESS;
+        flagCount = 0;
+        version = 0;
+        lastChange.clear();
+        gameStats.reset(seed);
+        boardView = new PlayerView();
+    }
+
+    static MineField createMineField(int matrixRows, int matrixCols) {
+        if (ENGINE_BACKEND == BACKEND_BITBOARD)
+            return new BitboardMineField(matrixRows, matrixCols);
+        return new ArrayMineField(matrixRows, matrixCols);
     }
 
     /**
-     * Generates a probability base for the mainfild in game_matrix.
-     * -1 = no adjecent bombs, 0 = a bomb, 1-8 = number of adjecent bombs
+     * Places the bombs in the field, from the test file if there is one,
+     * else at random locations chosen from the seed.
      * @param matrixRows int determines the number of rows of the matrix
      * @param matrixCols int determines the number of columns of the matrix
-     * @return int[][] the matrix
+     * @param bombs int number of bombs to be placed in the field
      */
-    private int[][] generateProbabilityMatrix(int matrixRows, int matrixCols) {
-        int[][] matrix = new int[matrixRows][matrixCols];
+    private void generateGameMatrix(int matrixRows, int matrixCols, int bombs) {
+        boolean[][] matrix = getTestBoard(getTestFileName(matrixCols), matrixRows, matrixCols);
+        if (matrix == NO_TEST_BOARD) {
+            if (shuffled != null)
+                placeRandomBombs(field, bombs, seed, shuffled);
+            else
+                placeRandomBombs(field, bombs, seed);
+            bombsFromSeed = true;
+            return;
+        }
         for (int i = 0; i < matrixRows; i++) {
             for (int j = 0; j < matrixCols; j++) {
-                int bombsFound = 0;
-                if (!gameMatrix[i][j]) {
-                    for (int k = i-1; k <= i+1; k++) {
-                        for (int l = j-1; l <= j+1; l++) {
-                            if(k >= 0 && l >= 0)
-                                if (k < rows && l < cols)
-                                    bombsFound += gameMatrix[k][l] ? 1 : 0;
-                        }
-                    }
-                    bombsFound = bombsFound == 0 ? -1 : bombsFound;
-                }
-                matrix[i][j] = bombsFound;
+                if (matrix[i][j])
+                    field.placeBomb(i, j);
             }
         }
-        return matrix;
     }
 
     /**
-     * Generate a matrix that represent the minefield.
-     * true = bomb, false = no bomb
-     * @param matrixRows int determines the number of rows of the matrix
-     * @param matrixCols int determines the number of columns of the matrix
-     * @param bombs int number of bombs to be placed in the field
-     * @return boolean[][] the matrix
+     * Get the bombs of a test file. The file is parsed the first time it is
+     * used, after that the parsed board is reused by every Engine.
+     * @return boolean[][] true for a bomb, NO_TEST_BOARD if there is no test file
      */
-    private boolean[][] generateGameMatrix(int matrixRows, int matrixCols, int bombs) {
-        boolean[][] matrix = new boolean[matrixRows][matrixCols];
-        try {
-            Scanner scanner = new Scanner(new File(getTestFileName(matrixCols)));
-            loadTestFile(scanner, matrix);
-        } catch (FileNotFoundException | InputMismatchException missingTestFile) {
-            if(!getTestFileName(matrixCols).equalsIgnoreCase("")) {
+    private static boolean[][] getTestBoard(String fileName, int matrixRows, int matrixCols) {
+        if (fileName.isEmpty())
+            return NO_TEST_BOARD;
+        return testBoards.computeIfAbsent(fileName + ":" + matrixRows + "x" + matrixCols, key -> {
+            boolean[][] matrix = new boolean[matrixRows][matrixCols];
+            try (Scanner scanner = new Scanner(new File(fileName))) {
+                loadTestFile(scanner, matrix);
+                return matrix;
+            } catch (FileNotFoundException | InputMismatchException missingTestFile) {
                 System.err.println("Missing or erronious testfile:");
                 System.err.println(missingTestFile);
+                return NO_TEST_BOARD;
             }
-            for (int i = 0; i < bombs; i++) {
-                int col, row;
-                do {
-                    col = new Random().nextInt(matrixRows);
-                    row = new Random().nextInt(matrixCols);
-                }while(matrix[col][row]);
-                matrix[col][row] = true;
-            }
+        });
+    }
+
+    /**
+     * Places the bombs with a partial Fisher-Yates shuffle of all locations.
+     * The first locations of the shuffle gets a bomb, so every bomb is placed
+     * with one random number, no matter how crowded the field is.
+     * @param field MineField an empty field
+     * @param bombs int number of bombs to be placed in the field
+     * @param seed long seed for the placement of the bombs
+     */
+    static void placeRandomBombs(MineField field, int bombs, long seed) {
+        placeRandomBombs(field, bombs, seed, new int[field.getRows() * field.getCols()]);
+    }
+
+    /**
+     * Places the bombs as above, shuffling a reused array
+     * @param shuffled int[] at least as long as the number of locations
+     */
+    private static void placeRandomBombs(MineField field, int bombs, long seed, int[] shuffled) {
+        int rows = field.getRows(), cols = field.getCols();
+        int locations = rows * cols;
+        if (bombs > locations)
+            throw new IllegalArgumentException(String.format("Error, %d bombs does not fit in %d locations", bombs, locations));
+        SplittableRandom random = new SplittableRandom(seed);
+        for (int i = 0; i < locations; i++)
+            shuffled[i] = i;
+        for (int i = 0; i < bombs; i++) {
+            int j = i + random.nextInt(locations - i);
+            int location = shuffled[j];
+            shuffled[j] = shuffled[i];
+            field.placeBomb(location / cols, location % cols);
         }
-        return matrix;
     }
 
-    private String getTestFileName(int matrixCols) {
+    private static String getTestFileName(int matrixCols) {
         if (matrixCols == GAME_EASY[1])
             return CUSTOM_BOARD_FILE_EASY;
         else if (matrixCols == GAME_MEDIUM[1])
@@ -112,7 +250,7 @@ public class Engine {
             return CUSTOM_BOARD_FILE_HARD;
     }
 
-    private void loadTestFile(Scanner scanner, boolean[][] matrix) {
+    private static void loadTestFile(Scanner scanner, boolean[][] matrix) {
         int rows = 0;
         while(scanner.hasNextLine()) {
             char[] row = scanner.nextLine().toCharArray();
@@ -137,107 +275,196 @@ public class Engine {
 
     /**
      * Reveals a location to the user. If that location has no adjecent bombs,
-     * all surrounding locations are also revealed.
-     * @param x int column to reveal
-     * @param y int row to reveal
+     * all surrounding locations are also revealed, and so on until the whole
+     * open area is revealed. The area is walked with a work queue instead of
+     * recursion, so any size of area can be swept.
+     * @param x int row to reveal
+     * @param y int column to reveal
+     * @return BoardChange with the revealed locations, only valid until the next action
      */
-    public void sweepLocation(int x, int y) {
-        sweepLocation(x, y, 0);
+    public BoardChange sweepLocation(int x, int y) {
+        long applyStarted = System.nanoTime();
+        lastChange.clear();
+        gameStats.decisions++;
+        if (sweep(x, y))
+            gameStats.turnsTaken++;
+        updateGameStatus();
+        gameStats.timings.recordApply(System.nanoTime() - applyStarted);
+        publishChange();
+        return lastChange;
     }
 
     /**
-     * Reveals a location to the user. If that location has no adjecent bombs,
-     * all surrounding locations are also revealed.
-     * @param x int row to reveal
-     * @param y int column to reveal
-     * @param depth int internal recursion counter
+     * Makes all actions of a batch as one decision. The actions are made in order,
+     * and the batch stops as soon as the game is over. The change of all actions
+     * is published as one BoardChange. The batch is counted as one turn or as
+     * one turn per sweep, see Constants.BATCH_TURNS.
+     * @param batch ActionBatch with the sweeps and flags to make
+     * @return BoardChange with the locations changed by the batch, only valid until the next action
      */
-    private void sweepLocation(int x, int y, int depth) {
-        if (playerRevealedMatrix == null)
-            playerRevealedMatrix = new Double[rows][cols];
-        if (x < 0 || x > rows-1 || y < 0 || y > cols-1)
-            return; //utanför grid
-        if (playerRevealedMatrix[x][y] != null && playerRevealedMatrix[x][y] > Double.NEGATIVE_INFINITY)
-            return; //redan hanterad
-        if (depth == 300) {
-            playerRevealedMatrix[x][y] = Double.NEGATIVE_INFINITY;
-            latestPositions.push(new int[]{x,y});
-            return;
+    public BoardChange applyBatch(ActionBatch batch) {
+        long applyStarted = System.nanoTime();
+        lastChange.clear();
+        gameStats.decisions++;
+        int sweeps = 0;
+        for (int i = 0; i < batch.size() && gameStatus == GAME_INPROGRESS; i++) {
+            if (batch.getCommand(i) == ACTION_SWEEP) {
+                if (sweep(batch.getRow(i), batch.getCol(i)))
+                    sweeps++;
+                updateGameStatus();
+            } else if (batch.getCommand(i) == ACTION_FLAG)
+                flag(batch.getRow(i), batch.getCol(i));
         }
-        playerRevealedMatrix[x][y] = (double)probabilityMatrix[x][y];
-        if (playerRevealedMatrix[x][y] == -1) {
-            for (int i = x-1; i <= x+1; i++) {
-                for (int j = y-1; j <= y+1; j++) {
-                    sweepLocation(i, j, depth +1);
+        gameStats.turnsTaken += BATCH_TURNS == BATCH_TURNS_PER_BATCH ? Math.min(sweeps, 1) : sweeps;
+        gameStats.timings.recordApply(System.nanoTime() - applyStarted);
+        publishChange();
+        return lastChange;
+    }
+
+    /**
+     * Reveals a location and the open area around it
+     * @return boolean true if the location was revealed
+     */
+    private boolean sweep(int x, int y) {
+        started = true;
+        if (!revealLocation(x, y))
+            return false;
+        int queued = 0;
+        if (field.getProbability(x, y) == -1)
+            queued = enqueue(queued, x, y);
+        while (queued > 0) {
+            queued -= 2;
+            int row = sweepQueue[queued];
+            int col = sweepQueue[queued + 1];
+            for (int i = row-1; i <= row+1; i++) {
+                for (int j = col-1; j <= col+1; j++) {
+                    if (revealLocation(i, j) && field.getProbability(i, j) == -1)
+                        queued = enqueue(queued, i, j);
                 }
             }
         }
-        if(depth == 0) {
-            gameStats.turnsTaken++;
-            int[] latestPos;
-            latestPos = latestPositions.size() != 0 ? latestPositions.pop() : new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE};
-            while (latestPos[0] > Integer.MIN_VALUE && latestPos[1] > Integer.MIN_VALUE) {
-                sweepLocation(latestPos[0], latestPos[1], depth+1);
-                latestPos = latestPositions.size() != 0 ? latestPositions.pop() : new int[]{Integer.MIN_VALUE, Integer.MIN_VALUE};
-            }
-        }
+        return true;
     }
 
     /**
-     * Returns a deep copy of the game board matrix.
-     * @return Double[][] matrix representing the game board
+     * Reveals a single location, if it is inside the board and not already revealed or flagged.
+     * @param x int row to reveal
+     * @param y int column to reveal
+     * @return boolean true if the location was revealed
      */
-    public Double[][] getPlayerRevealedMatrix() {
-        return copyOfMatrix(playerRevealedMatrix);
+    private boolean revealLocation(int x, int y) {
+        if (x < 0 || x > rows-1 || y < 0 || y > cols-1)
+            return false; //utanför grid
+        if (field.isRevealed(x, y) || field.isFlagged(x, y))
+            return false; //redan hanterad
+        field.reveal(x, y);
+        lastChange.add(x, y);
+        if (field.isBomb(x, y))
+            detonated = true;
+        else
+            revealedSafeLocations++;
+        return true;
+    }
+
+    private int enqueue(int queued, int row, int col) {
+        if (queued + 2 > sweepQueue.length)
+            sweepQueue = Arrays.copyOf(sweepQueue, sweepQueue.length * 2);
+        sweepQueue[queued] = row;
+        sweepQueue[queued + 1] = col;
+        return queued + 2;
     }
 
     /**
-     * Makes a deep copy of the specified matrix
-     * @param matrix Double[][] matrix to copy
-     * @return Double[][] copy of the specified matrix
+     * Returns a view of the game board as seen by the player.
+     * The view is not a copy, it follows the game as it is played.
+     * @return BoardView of the game board
      */
-    private Double[][] copyOfMatrix(Double[][] matrix) {
-        if (matrix == null)
-            return new Double[rows][cols];
+    public BoardView getBoardView() {
+        return boardView;
+    }
+
+    /**
+     * Read only access to the player cells of the field, without access
+     * to where the bombs are.
+     */
+    private class PlayerView implements BoardView {
+        @Override
+        public int getRows() {
+            return rows;
+        }
+
+        @Override
+        public int getCols() {
+            return cols;
+        }
+
+        @Override
+        public byte getCell(int row, int col) {
+            return field.getCell(row, col);
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+
+    /**
+     * Returns a copy of the game board as seen by the player.
+     * Allocates a new matrix on every call, prefer getBoardView().
+     * @return Double[][] matrix representing the game board
+     */
+    public Double[][] getPlayerRevealedMatrix() {
         Double[][] copy = new Double[rows][cols];
+        if (!started)
+            return copy;
         for (int i = 0; i < rows; i++) {
             for (int j = 0; j < cols; j++) {
-                if (matrix[i][j] != null)
-                    copy[i][j] = matrix[i][j];
+                copy[i][j] = getPlayerValue(i, j);
             }
         }
         return copy;
     }
 
     /**
-     * Get the status for the game
+     * Get the value of a location as seen by the player
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return Double null = not revealed, Double.MAX_VALUE = flag, else same as the probability
+     */
+    private Double getPlayerValue(int row, int col) {
+        byte cell = field.getCell(row, col);
+        if (cell == CELL_FLAGGED)
+            return Double.MAX_VALUE;
+        if (cell == CELL_HIDDEN)
+            return null;
+        return (double) cell;
+    }
+
+    /**
+     * Get the status for the game. The status is kept up to date
+     * by every sweep, so no part of the board is inspected.
      * @return int for the constant representing the status
      */
     public int getGameStatus() {
-        if (playerRevealedMatrix == null)
-            return GAME_INPROGRESS;
-        boolean BOOM = false;
-        boolean WON = true;
-        for (int i = 0; i < rows; i++) {
-            for (int j = 0; j < cols; j++) {
-                if (!BOOM)
-                    BOOM = gameMatrix[i][j] && (playerRevealedMatrix[i][j] != null && playerRevealedMatrix[i][j] != Double.MAX_VALUE);
-                if (WON && !gameMatrix[i][j])
-                    WON = playerRevealedMatrix[i][j] != null;
-            }
-        }
-        if (BOOM) {
-            gameStats.stopGame();
-            gameStats.gameStatus = GAME_LOST;
-            return GAME_LOST;
-        }
-        if (WON) {
-            gameStats.stopGame();
-            gameStats.gameStatus = GAME_WON;
-            return GAME_WON;
-        }
-        gameStats.gameStatus =GAME_INPROGRESS;
-        return GAME_INPROGRESS;
+        return gameStatus;
+    }
+
+    /**
+     * Updates the status after a sweep. When the game ends, the
+     * result is saved to the statistics for the game.
+     */
+    private void updateGameStatus() {
+        if (gameStatus != GAME_INPROGRESS)
+            return;
+        if (detonated)
+            gameStatus = GAME_LOST;
+        else if (revealedSafeLocations == safeLocations)
+            gameStatus = GAME_WON;
+        else
+            return;
+        gameStats.stopGame();
+        gameStats.gameStatus = gameStatus;
     }
 
     /**
@@ -252,7 +479,7 @@ public class Engine {
         stringBuilder.append("\n" + "ProbabilityMatrix:\n");
         stringBuilder.append(stringifyMatrix(PROBABILITY_MATRIX));
         stringBuilder.append("\n" + "PlayerMatrix:\n");
-        if (playerRevealedMatrix != null)
+        if (started)
             stringBuilder.append(stringifyMatrix(PLAYER_MATRIX));
         else
             stringBuilder.append("Game has not started yet, sweep a location!");
@@ -266,27 +493,115 @@ public class Engine {
      */
     public String stringifyMatrix(int matrix) {
         StringBuilder stringBuilder = new StringBuilder();
-        if (matrix == PLAYER_MATRIX)
-            if (playerRevealedMatrix != null)
-                Arrays.stream(playerRevealedMatrix).map(doubles -> Arrays.toString(doubles) + "\n").forEach(stringBuilder::append);
-            else
-                stringBuilder.append("Game has not started yet, sweep a location!");
-        if (matrix == GAME_MATRIX)
-            Arrays.stream(gameMatrix).map(booleans -> Arrays.toString(booleans) + "\n").forEach(stringBuilder::append);
-        if (matrix == PROBABILITY_MATRIX)
-            Arrays.stream(probabilityMatrix).map(ints -> Arrays.toString(ints) + "\n").forEach(stringBuilder::append);
+        if (matrix == PLAYER_MATRIX && !started) {
+            stringBuilder.append("Game has not started yet, sweep a location!");
+            return stringBuilder.toString();
+        }
+        for (int i = 0; i < rows; i++) {
+            StringJoiner row = new StringJoiner(", ", "[", "]\n");
+            for (int j = 0; j < cols; j++) {
+                if (matrix == PLAYER_MATRIX)
+                    row.add(String.valueOf(getPlayerValue(i, j)));
+                if (matrix == GAME_MATRIX)
+                    row.add(String.valueOf(field.isBomb(i, j)));
+                if (matrix == PROBABILITY_MATRIX)
+                    row.add(String.valueOf(field.getProbability(i, j)));
+            }
+            stringBuilder.append(row);
+        }
         return stringBuilder.toString();
     }
     public GameStatistics getGameStatistics() {
         return gameStats;
     }
 
-    public void placeFlag(int row, int col) {
-        if (playerRevealedMatrix == null)
-            playerRevealedMatrix = new Double[rows][cols];
-        if (playerRevealedMatrix[row][col] == null)
-            playerRevealedMatrix[row][col] = Double.MAX_VALUE;
-        else if (playerRevealedMatrix[row][col] == Double.MAX_VALUE)
-            playerRevealedMatrix[row][col] = null;
+    /**
+     * @return boolean true if the bombs were placed from the seed, so the same seed gives the same board
+     */
+    boolean isBombsFromSeed() {
+        return bombsFromSeed;
+    }
+
+    /**
+     * Where the bombs are, for recording a game. Not available to the player.
+     */
+    boolean isBomb(int row, int col) {
+        return field.isBomb(row, col);
+    }
+
+    /**
+     * @return int number of bombs placed by the engine, -1 for a field prepared with its bombs
+     */
+    public int getBombs() {
+        return bombs;
+    }
+
+    /**
+     * Get the seed the bombs were placed from
+     * @return long the seed, a new Engine with the same seed gets the same board
+     */
+    public long getSeed() {
+        return seed;
+    }
+
+    /**
+     * Toggles a flag on a location, revealed locations can not be flagged
+     * @param row int row to flag
+     * @param col int column to flag
+     * @return BoardChange with the flagged location, only valid until the next action
+     */
+    public BoardChange placeFlag(int row, int col) {
+        long applyStarted = System.nanoTime();
+        lastChange.clear();
+        gameStats.decisions++;
+        flag(row, col);
+        gameStats.timings.recordApply(System.nanoTime() - applyStarted);
+        publishChange();
+        return lastChange;
+    }
+
+    private void flag(int row, int col) {
+        started = true;
+        if (row < 0 || row > rows-1 || col < 0 || col > cols-1 || field.isRevealed(row, col))
+            return;
+        boolean flagged = !field.isFlagged(row, col);
+        field.setFlagged(row, col, flagged);
+        flagCount += flagged ? 1 : -1;
+        lastChange.add(row, col);
+    }
+
+    /**
+     * @return long number of flagged locations on the board
+     */
+    public long getFlagCount() {
+        return flagCount;
+    }
+
+    /**
+     * @return BoardChange made by the last sweep or flag
+     */
+    public BoardChange getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * Registers a listener that is told about every change of the board
+     * @param listener BoardListener to register
+     */
+    public void addBoardListener(BoardListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeBoardListener(BoardListener listener) {
+        listeners.remove(listener);
+    }
+
+    private void publishChange() {
+        if (lastChange.getCount() == 0)
+            return;
+        version++;
+        lastChange.finish(flagCount, version);
+        for (BoardListener listener : listeners)
+            listener.boardChanged(lastChange);
     }
 }
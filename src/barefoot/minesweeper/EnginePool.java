@@ -0,0 +1,46 @@
+package barefoot.minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Engines kept for reuse between games, one for each size of board and
+ * number of bombs. A new game on a size that has been played before
+ * resets the engine of the earlier game instead of allocating a new one,
+ * so a runner playing millions of games allocates next to nothing.
+ * A pool is not thread safe, every thread or GameSession should have its own.
+ * An engine from the pool is valid until the pool is asked for an engine
+ * of the same size again.
+ */
+public class EnginePool {
+    private final List<Engine> engines = new ArrayList<>();
+
+    /**
+     * Get an engine for a new game, with the bombs placed from the seed
+     * @param rows int number of rows of the board
+     * @param cols int number of columns of the board
+     * @param bombs int number of bombs on the board
+     * @param seed long seed for the placement of the bombs
+     * @return Engine for the new game, reset if it was used before
+     */
+    public Engine acquire(int rows, int cols, int bombs, long seed) {
+        for (int i = 0; i < engines.size(); i++) {
+            Engine engine = engines.get(i);
+            BoardView board = engine.getBoardView();
+            if (board.getRows() == rows && board.getCols() == cols && engine.getBombs() == bombs) {
+                engine.reset(seed);
+                return engine;
+            }
+        }
+        Engine engine = new Engine(rows, cols, bombs, seed);
+        engines.add(engine);
+        return engine;
+    }
+
+    /**
+     * @return int number of engines in the pool
+     */
+    public int size() {
+        return engines.size();
+    }
+}
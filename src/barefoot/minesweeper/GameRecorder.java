@@ -0,0 +1,217 @@
+package barefoot.minesweeper;
+
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Records games to a compact binary log that GameReplayer can play again.
+ * Start recording with GameSession.setRecorder(), every game of the session
+ * is then written to the log with the board and all actions of the player.
+ *
+ * The log starts with the header "MSRL" and a version byte, followed by the games:
+ * <pre>
+ * game:    GAME_START rows cols bombs board-type seed [bitmap] action* END result
+ * board:   BOARD_SEED, the bombs are placed from the seed with Engine.placeRandomBombs(),
+ *          or BOARD_BITMAP followed by one bit per location, row by row
+ * action:  ACTION_SWEEP_CODE row col time | ACTION_FLAG_CODE row col time |
+ *          ACTION_BATCH_CODE size (command row col)* time
+ * result:  status turns
+ * </pre>
+ * The seed is 8 bytes, every other number is a varint: 7 bits per byte, lowest
+ * bits first, the high bit set on every byte but the last. time is the number of
+ * microseconds since the previous action, or since the game started.
+ */
+public class GameRecorder implements Closeable {
+    static final int MAGIC = 0x4D53524C; //"MSRL"
+    static final int VERSION = 1;
+    static final int GAME_START = 'G';
+    static final int BOARD_SEED = 0;
+    static final int BOARD_BITMAP = 1;
+    static final int END = 0;
+    static final int ACTION_SWEEP_CODE = 1;
+    static final int ACTION_FLAG_CODE = 2;
+    static final int ACTION_BATCH_CODE = 3;
+
+    private final OutputStream out;
+    //The game being recorded, its result is written when the next game starts or the recorder is closed
+    private Engine engine;
+    private long lastActionNanos;
+
+    /**
+     * Records to a new file, an existing file is replaced
+     * @param file Path to the log
+     * @return GameRecorder writing to the file
+     * @throws IOException if the file can not be created
+     */
+    public static GameRecorder toFile(Path file) throws IOException {
+        return new GameRecorder(new BufferedOutputStream(Files.newOutputStream(file), 1 << 16), true);
+    }
+
+    /**
+     * Records to a stream, starting with the header
+     * @param out OutputStream to write the log to
+     */
+    public GameRecorder(OutputStream out) {
+        this(out, true);
+    }
+
+    /**
+     * Records games without the header, for parts of a log that are joined
+     * after a header written by an other recorder.
+     * @param out OutputStream to write the games to
+     * @return GameRecorder writing games only
+     */
+    public static GameRecorder segment(OutputStream out) {
+        return new GameRecorder(out, false);
+    }
+
+    private GameRecorder(OutputStream out, boolean header) {
+        this.out = out;
+        if (header) {
+            try {
+                writeHeader(out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+    /**
+     * Writes the header of a log, for a log joined from segments
+     * @param out OutputStream to write the header to
+     * @throws IOException if the header can not be written
+     */
+    public static void writeHeader(OutputStream out) throws IOException {
+        out.write(new byte[]{(byte) (MAGIC >>> 24), (byte) (MAGIC >>> 16), (byte) (MAGIC >>> 8), (byte) MAGIC, VERSION});
+    }
+
+    /**
+     * Starts recording a new game, the previous game is finished first
+     * @param engine Engine of the new game, before any action is made
+     * @param bombs int number of bombs on the board, -1 if not known
+     */
+    void startGame(Engine engine, int bombs) {
+        finishGame();
+        BoardView board = engine.getBoardView();
+        if (board.getRows() * (long) board.getCols() > Integer.MAX_VALUE)
+            throw new IllegalArgumentException("Error, the board is too large to be recorded");
+        this.engine = engine;
+        write(GAME_START);
+        writeVarint(board.getRows());
+        writeVarint(board.getCols());
+        writeVarint(Math.max(bombs, 0));
+        boolean fromSeed = engine.isBombsFromSeed() && bombs >= 0;
+        write(fromSeed ? BOARD_SEED : BOARD_BITMAP);
+        for (int shift = 56; shift >= 0; shift -= 8)
+            write((int) (engine.getSeed() >>> shift));
+        if (!fromSeed)
+            writeBitmap(engine);
+        lastActionNanos = System.nanoTime();
+    }
+
+    private void writeBitmap(Engine engine) {
+        int rows = engine.getBoardView().getRows(), cols = engine.getBoardView().getCols();
+        int bits = 0, filled = 0;
+        for (int i = 0; i < rows * cols; i++) {
+            if (engine.isBomb(i / cols, i % cols))
+                bits |= 1 << filled;
+            if (++filled == 8) {
+                write(bits);
+                bits = 0;
+                filled = 0;
+            }
+        }
+        if (filled > 0)
+            write(bits);
+    }
+
+    /**
+     * Records a sweep or a flag
+     * @param command int ACTION_SWEEP or ACTION_FLAG
+     */
+    void recordAction(int command, int row, int col) {
+        if (engine == null)
+            return;
+        writeVarint(command == ACTION_SWEEP ? ACTION_SWEEP_CODE : ACTION_FLAG_CODE);
+        writeVarint(row);
+        writeVarint(col);
+        writeTime();
+    }
+
+    /**
+     * Records a batch of actions, see ActionBatch
+     */
+    void recordBatch(ActionBatch batch) {
+        if (engine == null)
+            return;
+        writeVarint(ACTION_BATCH_CODE);
+        writeVarint(batch.size());
+        for (int i = 0; i < batch.size(); i++) {
+            writeVarint(batch.getCommand(i) == ACTION_SWEEP ? ACTION_SWEEP_CODE : ACTION_FLAG_CODE);
+            writeVarint(batch.getRow(i));
+            writeVarint(batch.getCol(i));
+        }
+        writeTime();
+    }
+
+    private void writeTime() {
+        long now = System.nanoTime();
+        writeVarint((now - lastActionNanos) / 1000);
+        lastActionNanos = now;
+    }
+
+    /**
+     * Writes the result of the game being recorded, if any.
+     * Called before the engine of the game is reset for the next game.
+     */
+    void finishGame() {
+        if (engine == null)
+            return;
+        writeVarint(END);
+        writeVarint(engine.getGameStatus());
+        writeVarint(engine.getGameStatistics().turnsTaken);
+        engine = null;
+    }
+
+    /**
+     * Finishes the game being recorded and closes the log
+     * @throws IOException if the log can not be written
+     */
+    @Override
+    public void close() throws IOException {
+        finishGame();
+        out.close();
+    }
+
+    /**
+     * Writes the log to the stream without closing it, the game being recorded is finished first
+     * @throws IOException if the log can not be written
+     */
+    public void flush() throws IOException {
+        finishGame();
+        out.flush();
+    }
+
+    private void writeVarint(long value) {
+        while ((value & ~0x7FL) != 0) {
+            write((int) (value & 0x7F) | 0x80);
+            value >>>= 7;
+        }
+        write((int) value);
+    }
+
+    private void write(int b) {
+        try {
+            out.write(b);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
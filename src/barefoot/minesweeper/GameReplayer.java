@@ -0,0 +1,176 @@
+package barefoot.minesweeper;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Plays the games of a log written by GameRecorder again, on a new Engine,
+ * as fast as the engine can apply the actions. The log is memory mapped,
+ * so the games are read without copying. Every replayed game is compared
+ * with the recorded result, a difference means the engine has changed.
+ * Usage:
+ * <pre>
+ * GameReplayer replayer = GameReplayer.open(path);
+ * while (replayer.next())
+ *     if (!replayer.isIdentical())
+ *         System.out.println("Changed: " + replayer.getEngine().getSeed());
+ * </pre>
+ */
+public class GameReplayer {
+    private final ByteBuffer log;
+    private Engine engine;
+    private int recordedStatus;
+    private int recordedTurns;
+    //Sum of the recorded time between the actions, in microseconds
+    private long recordedMicros;
+    private final ActionBatch batch = new ActionBatch();
+
+    /**
+     * Maps a log into memory
+     * @param file Path to a log written by GameRecorder, at most 2 GB
+     * @return GameReplayer positioned before the first game
+     * @throws IOException if the file can not be read or is not a log
+     */
+    public static GameReplayer open(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new IOException("Error, the log is larger than 2 GB: " + file);
+            MappedByteBuffer log = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            return new GameReplayer(log);
+        }
+    }
+
+    /**
+     * @param log ByteBuffer holding a whole log, from the header
+     * @throws IOException if the log does not start with the header
+     */
+    public GameReplayer(ByteBuffer log) throws IOException {
+        this.log = log;
+        if (log.remaining() < 5 || log.getInt() != GameRecorder.MAGIC)
+            throw new IOException("Error, not a game log");
+        int version = log.get();
+        if (version != GameRecorder.VERSION)
+            throw new IOException("Error, unknown version of the game log: " + version);
+    }
+
+    /**
+     * Reads the next game and plays all its actions
+     * @return boolean false when there are no more games
+     * @throws IOException if the log is broken
+     */
+    public boolean next() throws IOException {
+        if (!log.hasRemaining())
+            return false;
+        if (log.get() != GameRecorder.GAME_START)
+            throw new IOException("Error, expected the start of a game at " + (log.position() - 1));
+        engine = readBoard();
+        recordedMicros = 0;
+        int code;
+        while ((code = readInt()) != GameRecorder.END)
+            replayAction(code);
+        recordedStatus = readInt();
+        recordedTurns = readInt();
+        return true;
+    }
+
+    private Engine readBoard() throws IOException {
+        int rows = readInt(), cols = readInt(), bombs = readInt();
+        int boardType = log.get();
+        long seed = log.getLong();
+        MineField field = Engine.createMineField(rows, cols);
+        if (boardType == GameRecorder.BOARD_SEED)
+            Engine.placeRandomBombs(field, bombs, seed);
+        else if (boardType == GameRecorder.BOARD_BITMAP)
+            readBitmap(field);
+        else
+            throw new IOException("Error, unknown board type: " + boardType);
+        field.countAdjacentBombs();
+        return Engine.withPlacedBombs(field, seed);
+    }
+
+    private void readBitmap(MineField field) {
+        int cols = field.getCols();
+        int locations = field.getRows() * cols;
+        int bits = 0;
+        for (int i = 0; i < locations; i++) {
+            if ((i & 7) == 0)
+                bits = log.get();
+            if ((bits & (1 << (i & 7))) != 0)
+                field.placeBomb(i / cols, i % cols);
+        }
+    }
+
+    private void replayAction(int code) throws IOException {
+        if (code == GameRecorder.ACTION_BATCH_CODE) {
+            batch.clear();
+            int size = readInt();
+            for (int i = 0; i < size; i++)
+                batch.add(toCommand(readInt()), readInt(), readInt());
+            engine.applyBatch(batch);
+        } else if (toCommand(code) == ACTION_SWEEP)
+            engine.sweepLocation(readInt(), readInt());
+        else
+            engine.placeFlag(readInt(), readInt());
+        recordedMicros += readLong();
+    }
+
+    private int toCommand(int code) throws IOException {
+        if (code == GameRecorder.ACTION_SWEEP_CODE)
+            return ACTION_SWEEP;
+        if (code == GameRecorder.ACTION_FLAG_CODE)
+            return ACTION_FLAG;
+        throw new IOException("Error, unknown action " + code + " at " + log.position());
+    }
+
+    private int readInt() {
+        return (int) readLong();
+    }
+
+    private long readLong() {
+        long value = 0;
+        int shift = 0;
+        byte b;
+        do {
+            b = log.get();
+            value |= (long) (b & 0x7F) << shift;
+            shift += 7;
+        } while (b < 0);
+        return value;
+    }
+
+    /**
+     * @return Engine the last game was replayed on
+     */
+    public Engine getEngine() {
+        return engine;
+    }
+
+    public int getRecordedStatus() {
+        return recordedStatus;
+    }
+
+    public int getRecordedTurns() {
+        return recordedTurns;
+    }
+
+    /**
+     * @return long microseconds the player used for the recorded game
+     */
+    public long getRecordedMicros() {
+        return recordedMicros;
+    }
+
+    /**
+     * @return boolean true if the replayed game ended as the recorded one
+     */
+    public boolean isIdentical() {
+        return engine.getGameStatus() == recordedStatus
+                && engine.getGameStatistics().turnsTaken == recordedTurns;
+    }
+}
@@ -0,0 +1,323 @@
+package barefoot.minesweeper;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A headless game of MineSweeper. The session wraps an Engine and
+ * exposes everything a player, human or bot, needs to sweep, flag and
+ * follow the status of a game. No GUI is needed, which makes it
+ * possible to run a SweeperBot at full speed.
+ * The same session can be used for several rounds, see newGame().
+ * The engine of a round is reset for the next round of the same difficulty,
+ * read the GameStatistics of a round before the next one is started.
+ */
+public class GameSession implements PlayerSession {
+    private Engine engine;
+    private int[] difficulty;
+    //Random numbers for the player, derived from the seed of the board
+    private SplittableRandom random;
+    //Listeners moved to the engine of every new game
+    private final List<BoardListener> listeners = new ArrayList<>();
+    //Records every game of the session, null when not recording
+    private GameRecorder recorder;
+    //true when the current game has been started on a recorder, so it is not recorded twice
+    private boolean gameRecorded;
+    //Engines of earlier rounds, reused for the next round of the same difficulty
+    private final EnginePool engines = new EnginePool();
+
+    /**
+     * Constructs a session and starts a first game
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     * @see Constants
+     */
+    public GameSession(int[] difficulty) {
+        newGame(difficulty);
+    }
+
+    /**
+     * Constructs a session and starts a first game with the bombs placed from the seed
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     * @param seed long seed for the placement of the bombs
+     */
+    public GameSession(int[] difficulty, long seed) {
+        newGame(difficulty, seed);
+    }
+
+    /**
+     * Constructs a session with a first game on a prepared engine
+     * @param engine Engine for the first game
+     * @param bombs int number of bombs on the board, -1 if not known
+     */
+    public GameSession(Engine engine, int bombs) {
+        newGame(engine, bombs);
+    }
+
+    /**
+     * Starts a new game, the previous game is thrown away.
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     */
+    public void newGame(int[] difficulty) {
+        newGame(difficulty, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Starts a new game with the bombs placed from the seed, the previous game is thrown away.
+     * A game can be replayed by starting a new game with the seed found in its GameStatistics.
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     * @param seed long seed for the placement of the bombs
+     */
+    public void newGame(int[] difficulty, long seed) {
+        this.difficulty = difficulty;
+        //The result of the game must be recorded before its engine is reset
+        if (recorder != null)
+            recorder.finishGame();
+        startEngine(engines.acquire(difficulty[0], difficulty[1], difficulty[2], seed));
+    }
+
+    /**
+     * Starts a new game on a prepared engine, the previous game is thrown away.
+     * Used for boards that are not described by a difficulty, such as an
+     * engine on a ChunkedMineField. The difficulty of the game is the size
+     * of the board and -1 bombs, as the number of bombs is not known.
+     * @param engine Engine for the new game
+     */
+    public void newGame(Engine engine) {
+        newGame(engine, -1);
+    }
+
+    /**
+     * Starts a new game on a prepared engine with a known number of bombs,
+     * such as a board from a BoardCorpus. The previous game is thrown away.
+     * @param engine Engine for the new game
+     * @param bombs int number of bombs on the board, -1 if not known
+     */
+    public void newGame(Engine engine, int bombs) {
+        difficulty = new int[]{engine.getBoardView().getRows(), engine.getBoardView().getCols(), bombs};
+        startEngine(engine);
+    }
+
+    /**
+     * Moves the listeners to the engine of the new game, unless the engine was reset
+     */
+    private void startEngine(Engine next) {
+        if (next != engine) {
+            for (BoardListener listener : listeners) {
+                if (engine != null)
+                    engine.removeBoardListener(listener);
+                next.addBoardListener(listener);
+            }
+            engine = next;
+        }
+        random = new SplittableRandom(engine.getSeed()).split();
+        if (recorder != null)
+            recorder.startGame(engine, difficulty[2]);
+        gameRecorded = recorder != null;
+    }
+
+    /**
+     * Records every game of the session, so it can be played again with GameReplayer.
+     * The current game is recorded if no action has been made yet and it has not
+     * been recorded before, else the recording starts with the next game.
+     * @param recorder GameRecorder to record to, null to stop recording
+     */
+    public void setRecorder(GameRecorder recorder) {
+        this.recorder = recorder;
+        if (recorder != null && !gameRecorded && engine.getGameStatistics().decisions == 0) {
+            recorder.startGame(engine, difficulty[2]);
+            gameRecorded = true;
+        }
+    }
+
+    /**
+     * Registers a listener that is told about every change of the board.
+     * The listener stays registered for the following games of the session.
+     * @param listener BoardListener to register
+     */
+    @Override
+    public void addBoardListener(BoardListener listener) {
+        listeners.add(listener);
+        engine.addBoardListener(listener);
+    }
+
+    @Override
+    public void removeBoardListener(BoardListener listener) {
+        listeners.remove(listener);
+        engine.removeBoardListener(listener);
+    }
+
+    /**
+     * Random numbers for a bot. The numbers are derived from the seed of the
+     * board, so a bot using them makes the same guesses when a game is replayed.
+     * @return SplittableRandom for the current game
+     */
+    @Override
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    /**
+     * All actions of a SweeperBot implementation should be through this metod
+     * @param command int as represented by the Action constants in Constants
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return int for the constant representing the status after the action
+     */
+    @Override
+    public int takeAutomatedAction(int command, int row, int col) {
+        if (command == ACTION_SWEEP)
+            return sweep(row, col);
+        if (command == ACTION_FLAG)
+            return flag(row, col);
+        return getGameStatus();
+    }
+
+    /**
+     * Sweeps a location. Actions outside the board or after the game
+     * has ended are ignored.
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return int for the constant representing the status after the action
+     */
+    @Override
+    public int sweep(int row, int col) {
+        if (isPlayable(row, col)) {
+            if (recorder != null)
+                recorder.recordAction(ACTION_SWEEP, row, col);
+            engine.sweepLocation(row, col);
+        }
+        return getGameStatus();
+    }
+
+    /**
+     * Toggles a flag on a location. Actions outside the board or after the game
+     * has ended are ignored.
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return int for the constant representing the status after the action
+     */
+    @Override
+    public int flag(int row, int col) {
+        if (isPlayable(row, col)) {
+            if (recorder != null)
+                recorder.recordAction(ACTION_FLAG, row, col);
+            engine.placeFlag(row, col);
+        }
+        return getGameStatus();
+    }
+
+    /**
+     * Makes several sweeps and flags as one decision. The actions are made in order
+     * and the batch stops at the first bomb. The locations changed by the whole
+     * batch are found with getLastChange().
+     * @param batch ActionBatch with the actions to make
+     * @return int for the constant representing the status after the batch
+     */
+    @Override
+    public int takeAutomatedActions(ActionBatch batch) {
+        if (engine.getGameStatus() == GAME_INPROGRESS) {
+            if (recorder != null)
+                recorder.recordBatch(batch);
+            engine.applyBatch(batch);
+        }
+        return getGameStatus();
+    }
+
+    private boolean isPlayable(int row, int col) {
+        BoardView board = engine.getBoardView();
+        if (row < 0 || col < 0 || row >= board.getRows() || col >= board.getCols())
+            return false;
+        return engine.getGameStatus() == GAME_INPROGRESS;
+    }
+
+    /**
+     * Get the status for the current game
+     * @return int for the constant representing the status
+     */
+    @Override
+    public int getGameStatus() {
+        return engine.getGameStatus();
+    }
+
+    /**
+     * Returns a view of the board as seen by the player. The view is not a copy,
+     * it follows the current game until newGame() is called.
+     * @return BoardView of the game board
+     */
+    @Override
+    public BoardView getBoardView() {
+        return engine.getBoardView();
+    }
+
+    /**
+     * Returns a copy of the board as seen by the player.
+     * Allocates a new matrix on every call, prefer getBoardView().
+     * null -> not sweeped yet
+     * 0.0 -> visual bomb
+     * Double.MAX -> Flagged position
+     * 1-8 -> Number of adjacent bombs
+     * -1 -> No adjacent bombs
+     * @return Double[][] matrix representing the game board
+     */
+    @Override
+    public Double[][] getPlayerRevealedMatrix() {
+        return engine.getPlayerRevealedMatrix();
+    }
+
+    /**
+     * @return long number of flagged locations on the board
+     */
+    @Override
+    public long getFlagCount() {
+        return engine.getFlagCount();
+    }
+
+    /**
+     * Get the locations changed by the last sweep or flag
+     * @return BoardChange only valid until the next action
+     */
+    @Override
+    public BoardChange getLastChange() {
+        return engine.getLastChange();
+    }
+
+    /**
+     * Get the statistics for the current game
+     * @return GameStatistics with all stats for the game
+     */
+    @Override
+    public GameStatistics getGameStatistics() {
+        return engine.getGameStatistics();
+    }
+
+    /**
+     * Get the difficulty of the current game
+     * @return int[] as found in the difficulty constants in Constants.java
+     */
+    @Override
+    public int[] getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Stringify the gameboard
+     * @param matrix int to specify parts of the gameboard, use matrix constants from Constants
+     * @return String representation of some aspect of the gameboard
+     */
+    @Override
+    public String toString(int matrix) {
+        return engine.stringifyMatrix(matrix);
+    }
+
+    /**
+     * Stringify all aspects of the gameboard
+     * @return String representing the state of the gameboard
+     */
+    @Override
+    public String toString() {
+        return engine.toString();
+    }
+}
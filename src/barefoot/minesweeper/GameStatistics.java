@@ -6,13 +6,33 @@ package barefoot.minesweeper;
 public class GameStatistics {
     public int gameStatus = Constants.GAME_INPROGRESS;
     public int turnsTaken = 0;
+    //Number of calls made by the player, a batch of actions is one decision
+    public int decisions = 0;
+    //Seed of the board, play it again with the same seed to replay the game
+    public long seed = 0;
+    //Think, apply and render time of the moves in nanoseconds
+    public final MoveTimings timings = new MoveTimings();
     //Time in milliseconds
-    private final long gameStarted;
+    private long gameStarted;
     private long gameEnded = 0;
 
     public GameStatistics() {
         gameStarted = System.currentTimeMillis();
     }
+    /**
+     * Clears the statistics for a new game on the same engine
+     * @param seed long seed of the new board
+     */
+    void reset(long seed) {
+        gameStatus = Constants.GAME_INPROGRESS;
+        turnsTaken = 0;
+        decisions = 0;
+        this.seed = seed;
+        timings.clear();
+        gameStarted = System.currentTimeMillis();
+        gameEnded = 0;
+    }
+
     public long getPlayedTime() {
         if (gameEnded > 0)
             return gameEnded - gameStarted;
@@ -27,6 +47,9 @@ public class GameStatistics {
     public String toString() {
         return "GameStatus: " + gameStatus +
                 "\nRounds played: " + turnsTaken +
-                "\nTime elapsed: " + getPlayedTime();
+                "\nDecisions: " + decisions +
+                "\nTime elapsed: " + getPlayedTime() +
+                "\nSeed: " + seed +
+                "\n" + timings;
     }
 }
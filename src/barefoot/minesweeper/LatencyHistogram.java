@@ -0,0 +1,136 @@
+package barefoot.minesweeper;
+
+import java.util.Arrays;
+
+/**
+ * Counts durations in nanoseconds in log-linear buckets: every power of two
+ * is split in SUB_BUCKETS linear buckets, so a percentile is never more than
+ * about 12% from the real value, from nanoseconds up to minutes.
+ * Recording a duration never allocates. Histograms from different games
+ * or threads can be merged into one.
+ */
+public class LatencyHistogram {
+    private static final int SUB_BITS = 3;
+    private static final int SUB_BUCKETS = 1 << SUB_BITS;
+    //Durations of 2^MAX_EXPONENT nanoseconds, about 18 minutes, or more are counted in the last bucket
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (MAX_EXPONENT - SUB_BITS + 1) * SUB_BUCKETS + SUB_BUCKETS;
+
+    //Allocated on the first recording, most histograms of a short game stay empty
+    private long[] counts;
+    private long count;
+    private long total;
+    private long max;
+
+    /**
+     * Counts a duration
+     * @param nanos long duration in nanoseconds, negative durations are counted as 0
+     */
+    public void record(long nanos) {
+        if (nanos < 0)
+            nanos = 0;
+        if (counts == null)
+            counts = new long[BUCKETS];
+        counts[bucketOf(nanos)]++;
+        count++;
+        total += nanos;
+        if (nanos > max)
+            max = nanos;
+    }
+
+    private static int bucketOf(long nanos) {
+        if (nanos < SUB_BUCKETS)
+            return (int) nanos;
+        int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+        if (exponent > MAX_EXPONENT)
+            return BUCKETS - 1;
+        int shift = exponent - SUB_BITS;
+        int sub = (int) (nanos >>> shift) & (SUB_BUCKETS - 1);
+        return (shift + 1) * SUB_BUCKETS + sub;
+    }
+
+    /**
+     * @return long the smallest duration counted in the bucket
+     */
+    private static long lowestOf(int bucket) {
+        if (bucket < SUB_BUCKETS)
+            return bucket;
+        int shift = bucket / SUB_BUCKETS - 1;
+        return (long) (SUB_BUCKETS + bucket % SUB_BUCKETS) << shift;
+    }
+
+    /**
+     * Adds all durations of an other histogram to this one
+     * @param other LatencyHistogram to merge into this histogram
+     */
+    public void merge(LatencyHistogram other) {
+        if (other.counts == null)
+            return;
+        if (counts == null)
+            counts = new long[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++)
+            counts[i] += other.counts[i];
+        count += other.count;
+        total += other.total;
+        max = Math.max(max, other.max);
+    }
+
+    /**
+     * Removes all durations, the buckets are kept for the next recording
+     */
+    public void clear() {
+        if (counts != null)
+            Arrays.fill(counts, 0);
+        count = 0;
+        total = 0;
+        max = 0;
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    /**
+     * @return long sum of all durations in nanoseconds
+     */
+    public long getTotal() {
+        return total;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    public double getMean() {
+        return count == 0 ? 0 : (double) total / count;
+    }
+
+    /**
+     * Get the duration that the given share of the durations are shorter than or equal to
+     * @param percentile double 0 - 100, 50 for the median
+     * @return long the duration in nanoseconds, the middle of the bucket holding it
+     */
+    public long getPercentile(double percentile) {
+        if (count == 0)
+            return 0;
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts[i];
+            if (seen >= rank) {
+                long middle = (lowestOf(i) + (i + 1 < BUCKETS ? lowestOf(i + 1) : max)) / 2;
+                return Math.min(middle, max);
+            }
+        }
+        return max;
+    }
+
+    /**
+     * @return String with the number of durations, p50, p99 and max in microseconds
+     */
+    @Override
+    public String toString() {
+        return String.format("n=%d p50=%.1fus p99=%.1fus max=%.1fus", count,
+                getPercentile(50) / 1e3, getPercentile(99) / 1e3, max / 1e3);
+    }
+}
@@ -0,0 +1,100 @@
+package barefoot.minesweeper;
+
+/**
+ * The storage behind an Engine. A MineField holds where the bombs are,
+ * the number of adjacent bombs for each location and what the player
+ * has revealed or flagged. All game logic is kept in the Engine, a
+ * MineField only stores state.
+ * @see ArrayMineField
+ * @see BitboardMineField
+ */
+public interface MineField {
+    /**
+     * @return int number of rows in the field
+     */
+    int getRows();
+
+    /**
+     * @return int number of columns in the field
+     */
+    int getCols();
+
+    /**
+     * Places a bomb at the location. When all bombs are placed,
+     * countAdjacentBombs() must be called.
+     * @param row int row of the bomb
+     * @param col int column of the bomb
+     */
+    void placeBomb(int row, int col);
+
+    /**
+     * Calculates the number of adjacent bombs for all locations
+     */
+    void countAdjacentBombs();
+
+    /**
+     * Removes all bombs, flags and revealed locations, so the field can be
+     * used for a new game without allocating a new one
+     */
+    void clear();
+
+    /**
+     * Get the number of locations without a bomb, all of them
+     * must be revealed to win the game.
+     * @return long number of safe locations, Long.MAX_VALUE if the field has no end
+     */
+    long getSafeLocations();
+
+    /**
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return boolean true if there is a bomb at the location
+     */
+    boolean isBomb(int row, int col);
+
+    /**
+     * Get the probability value of a location.
+     * 0 = bomb, -1 = no adjecent bombs, 1-8 = number of adjecent bombs
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return int the probability value
+     */
+    int getProbability(int row, int col);
+
+    /**
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return boolean true if the location has been revealed to the player
+     */
+    boolean isRevealed(int row, int col);
+
+    /**
+     * Reveals the location to the player, a flag on the location is removed
+     * @param row int row to reveal
+     * @param col int column to reveal
+     */
+    void reveal(int row, int col);
+
+    /**
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return boolean true if the player has flagged the location
+     */
+    boolean isFlagged(int row, int col);
+
+    /**
+     * Places or removes a flag on the location
+     * @param row int row of the flag
+     * @param col int column of the flag
+     * @param flagged boolean true to place a flag, false to remove it
+     */
+    void setFlagged(int row, int col, boolean flagged);
+
+    /**
+     * Get a location as seen by the player
+     * @param row int row to inspect
+     * @param col int column to inspect
+     * @return byte one of the CELL constants in Constants or 1-8 adjacent bombs
+     */
+    byte getCell(int row, int col);
+}
@@ -0,0 +1,79 @@
+package barefoot.minesweeper;
+
+/**
+ * Where the time of the moves goes, in nanoseconds. Every move is split in
+ * the time the player thinks, the time the engine takes to apply the action
+ * and the time the GUI takes to paint the result.
+ * The engine records the apply time. A runner playing a bot calls startMove()
+ * before and endMove() after the bot, the think time is the time in between
+ * minus the apply time. The GUI records the render time.
+ */
+public class MoveTimings {
+    private final LatencyHistogram think = new LatencyHistogram();
+    private final LatencyHistogram apply = new LatencyHistogram();
+    private final LatencyHistogram render = new LatencyHistogram();
+    //Set by startMove()
+    private long moveStarted;
+    private long applyBeforeMove;
+
+    /**
+     * Called by the runner just before the bot is asked for its move
+     */
+    public void startMove() {
+        applyBeforeMove = apply.getTotal();
+        moveStarted = System.nanoTime();
+    }
+
+    /**
+     * Called by the runner when the bot has made its move
+     */
+    public void endMove() {
+        long elapsed = System.nanoTime() - moveStarted;
+        think.record(elapsed - (apply.getTotal() - applyBeforeMove));
+    }
+
+    void recordApply(long nanos) {
+        apply.record(nanos);
+    }
+
+    public void recordRender(long nanos) {
+        render.record(nanos);
+    }
+
+    public LatencyHistogram getThink() {
+        return think;
+    }
+
+    public LatencyHistogram getApply() {
+        return apply;
+    }
+
+    public LatencyHistogram getRender() {
+        return render;
+    }
+
+    /**
+     * Adds the timings of an other game to these timings
+     * @param other MoveTimings to merge into this instance
+     * @return MoveTimings this instance
+     */
+    public MoveTimings merge(MoveTimings other) {
+        think.merge(other.think);
+        apply.merge(other.apply);
+        render.merge(other.render);
+        return this;
+    }
+
+    public void clear() {
+        think.clear();
+        apply.clear();
+        render.clear();
+    }
+
+    @Override
+    public String toString() {
+        return "Think: " + think +
+                "\nApply: " + apply +
+                "\nRender: " + render;
+    }
+}
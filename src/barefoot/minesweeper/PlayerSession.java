@@ -0,0 +1,93 @@
+package barefoot.minesweeper;
+
+import java.util.SplittableRandom;
+
+/**
+ * A game as a player sees it: the board, the status and the actions a player
+ * can make. A SweeperBot plays a PlayerSession, a GameSession holding the game
+ * or a RemoteSession for a game held by an other process.
+ * Starting the games is left to whoever holds them.
+ */
+public interface PlayerSession {
+    /**
+     * Random numbers for a bot, the same when a game is replayed
+     * @return SplittableRandom for the current game
+     */
+    SplittableRandom getRandom();
+
+    /**
+     * @param command int as represented by the Action constants in Constants
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return int for the constant representing the status after the action
+     */
+    int takeAutomatedAction(int command, int row, int col);
+
+    /**
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return int for the constant representing the status after the sweep
+     */
+    int sweep(int row, int col);
+
+    /**
+     * @param row int for row in the matrix
+     * @param col int for column in the matrix
+     * @return int for the constant representing the status after the flag
+     */
+    int flag(int row, int col);
+
+    /**
+     * @param batch ActionBatch with the actions to make as one decision
+     * @return int for the constant representing the status after the batch
+     */
+    int takeAutomatedActions(ActionBatch batch);
+
+    /**
+     * @return int for the constant representing the status of the current game
+     */
+    int getGameStatus();
+
+    /**
+     * @return BoardView of the current game, not a copy
+     */
+    BoardView getBoardView();
+
+    /**
+     * @return Double[][] copy of the board as seen by the player
+     */
+    Double[][] getPlayerRevealedMatrix();
+
+    /**
+     * @return long number of flagged locations on the board
+     */
+    long getFlagCount();
+
+    /**
+     * @return BoardChange with the locations changed by the last action, only valid until the next action
+     */
+    BoardChange getLastChange();
+
+    /**
+     * @return GameStatistics for the current game
+     */
+    GameStatistics getGameStatistics();
+
+    /**
+     * @return int[] as found in the difficulty constants in Constants.java
+     */
+    int[] getDifficulty();
+
+    /**
+     * @param listener BoardListener told about every change of the board, for all following games
+     */
+    void addBoardListener(BoardListener listener);
+
+    void removeBoardListener(BoardListener listener);
+
+    /**
+     * @param matrix int to specify parts of the gameboard, use matrix constants from Constants
+     * @return String representation of some aspect of the gameboard
+     */
+    String toString(int matrix);
+}
@@ -0,0 +1,194 @@
+package barefoot.minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.channels.SocketChannel;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A player in an other process, connected with a RemoteSession. The games are
+ * held by the runner: the player is sent the locations that change, and its
+ * actions are made on the GameSession of the runner, see BotProtocol.
+ * Usage:
+ * <pre>
+ * RemotePlayer player = new RemotePlayer(serverChannel.accept());
+ * GameSession session = new GameSession(player.getDifficulty());
+ * while (session.getGameStatus() == GAME_INPROGRESS)
+ *     player.takeTurn(session);
+ * </pre>
+ * A player that crashes or stops answering only loses its connection, the
+ * runner gets an UncheckedIOException for the move and can go on without it.
+ * A player that has not answered within the timeout has stopped answering.
+ */
+public class RemotePlayer implements Closeable {
+    //Time the player gets to answer, in milliseconds, unless an other timeout is given
+    public static final long DEFAULT_TIMEOUT = 60_000;
+
+    private final BotProtocol protocol;
+    private final long token;
+    private final int[] difficulty;
+    private final ActionBatch batch = new ActionBatch();
+    //The board of the game the player was last sent, and its version
+    private BoardView board;
+    private long sentVersion;
+
+    /**
+     * Waits for the player to introduce itself, within the default timeout
+     * @param channel SocketChannel connected to the player
+     * @throws IOException if the player does not speak the protocol or does not answer in time
+     */
+    public RemotePlayer(SocketChannel channel) throws IOException {
+        this(channel, DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * Waits for the player to introduce itself
+     * @param channel SocketChannel connected to the player
+     * @param timeout long time the player gets to answer, for every message, in milliseconds. 0 to wait for ever.
+     * @throws IOException if the player does not speak the protocol or does not answer in time
+     */
+    public RemotePlayer(SocketChannel channel, long timeout) throws IOException {
+        protocol = new BotProtocol(channel, timeout);
+        try {
+            if (protocol.receive() != BotProtocol.HELLO || protocol.getInt() != BotProtocol.MAGIC)
+                throw new IOException("Error, the connection is not from a player");
+            long version = protocol.getVarint();
+            if (version != BotProtocol.VERSION)
+                throw new IOException("Error, unsupported version " + version + " of the player");
+            token = protocol.getLong();
+            difficulty = new int[]{(int) protocol.getVarint(), (int) protocol.getVarint(), (int) protocol.getVarint() - 1};
+        } catch (IOException e) {
+            protocol.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return long token the player was started with, 0 if none
+     */
+    public long getToken() {
+        return token;
+    }
+
+    /**
+     * @return int[] the difficulty the player wants to play, as the difficulty constants in Constants.java
+     */
+    public int[] getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * Lets the player make one move. The board of a new game is sent first, then
+     * the actions of the player are made and the locations they changed are sent back.
+     * @param session PlayerSession of the game
+     * @throws UncheckedIOException if the connection to the player is lost or the player does not answer in time
+     */
+    public void takeTurn(PlayerSession session) {
+        try {
+            if (session.getBoardView() != board)
+                sendGame(session);
+            int type = protocol.receive();
+            if (type != BotProtocol.ACTIONS)
+                throw new IOException(type < 0 ? "Error, the player closed the connection" : "Error, expected the actions of the player");
+            makeActions(session);
+            sendChange(session);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Asks the player if an other game should be played
+     * @param session PlayerSession of the game that just ended
+     * @return boolean the answer of the player
+     * @throws UncheckedIOException if the connection to the player is lost or the player does not answer in time
+     */
+    public boolean playAgain(PlayerSession session) {
+        GameStatistics statistics = session.getGameStatistics();
+        try {
+            protocol.begin(BotProtocol.END);
+            protocol.putVarint(statistics.gameStatus);
+            protocol.putVarint(statistics.turnsTaken);
+            protocol.putVarint(statistics.decisions);
+            protocol.putLong(statistics.seed);
+            protocol.send();
+            if (protocol.receive() != BotProtocol.ANSWER)
+                throw new IOException("Error, expected the answer of the player");
+            return protocol.getByte() != 0;
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Sends the size and every location that is not hidden. The seed gives the
+     * player the same random numbers as GameSession.getRandom() in the runner.
+     */
+    private void sendGame(PlayerSession session) throws IOException {
+        board = session.getBoardView();
+        protocol.begin(BotProtocol.GAME);
+        protocol.putVarint(board.getRows());
+        protocol.putVarint(board.getCols());
+        protocol.putVarint(session.getDifficulty()[2] + 1);
+        protocol.putLong(session.getGameStatistics().seed);
+        protocol.putVarint(session.getGameStatus());
+        protocol.putVarint(session.getFlagCount());
+        int revealed = 0;
+        for (int row = 0; row < board.getRows(); row++)
+            for (int col = 0; col < board.getCols(); col++)
+                if (board.getCell(row, col) != CELL_HIDDEN)
+                    revealed++;
+        protocol.putVarint(revealed);
+        for (int row = 0; row < board.getRows(); row++)
+            for (int col = 0; col < board.getCols(); col++)
+                if (board.getCell(row, col) != CELL_HIDDEN)
+                    protocol.putCell(board, row, col);
+        protocol.send();
+        sentVersion = board.getVersion();
+    }
+
+    private void makeActions(PlayerSession session) throws IOException {
+        int kind = (int) protocol.getVarint();
+        if (kind == BotProtocol.SINGLE) {
+            int command = BotProtocol.decodeCommand((int) protocol.getVarint());
+            session.takeAutomatedAction(command, (int) protocol.getVarint(), (int) protocol.getVarint());
+        } else if (kind == BotProtocol.BATCH) {
+            batch.clear();
+            for (long size = protocol.getVarint(); size > 0; size--) {
+                int command = BotProtocol.decodeCommand((int) protocol.getVarint());
+                batch.add(command, (int) protocol.getVarint(), (int) protocol.getVarint());
+            }
+            session.takeAutomatedActions(batch);
+        } else if (kind != BotProtocol.NONE)
+            throw new IOException("Error, unknown kind of actions " + kind);
+    }
+
+    /**
+     * Sends the locations changed by the actions, none if the actions were ignored
+     */
+    private void sendChange(PlayerSession session) throws IOException {
+        protocol.begin(BotProtocol.CHANGE);
+        protocol.putVarint(session.getGameStatus());
+        protocol.putVarint(session.getFlagCount());
+        if (board.getVersion() == sentVersion) {
+            protocol.putVarint(0);
+        } else {
+            BoardChange change = session.getLastChange();
+            protocol.putVarint(change.getCount());
+            for (int i = 0; i < change.getCount(); i++)
+                protocol.putCell(board, change.getRow(i), change.getCol(i));
+            sentVersion = board.getVersion();
+        }
+        protocol.send();
+    }
+
+    /**
+     * Closes the connection, the player sees the end of the games
+     */
+    @Override
+    public void close() throws IOException {
+        protocol.close();
+    }
+}
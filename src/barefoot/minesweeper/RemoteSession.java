@@ -0,0 +1,386 @@
+package barefoot.minesweeper;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.SocketAddress;
+import java.nio.channels.SocketChannel;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.StringJoiner;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * A session of a game held by a runner in an other process, see RemotePlayer.
+ * The session keeps a copy of the board, brought up to date with the locations
+ * the runner sends after every action, so a bot plays it the same way as a
+ * local GameSession, both are a PlayerSession. Every sweep, flag or batch is
+ * one round trip to the runner.
+ * The games are started by the runner, a bot waits for them with next():
+ * <pre>
+ * RemoteSession session = RemoteSession.connect(address, bot.getDifficulty());
+ * for (int message = session.next(); message != RemoteSession.CLOSED; message = session.next()) {
+ *     if (message == RemoteSession.PLAY_AGAIN) {
+ *         session.answer(bot.playAgain(session));
+ *         continue;
+ *     }
+ *     while (session.getGameStatus() == GAME_INPROGRESS) {
+ *         session.startMove();
+ *         bot.takeAutomatedAction(session.getBoardView(), session);
+ *         session.endMove();
+ *     }
+ * }
+ * </pre>
+ * The bombs are only known to the runner, so only the player matrix can be
+ * printed. The games are started and recorded by the runner.
+ */
+public class RemoteSession implements PlayerSession, Closeable {
+    //Returned by next()
+    public static final int GAME = BotProtocol.GAME;
+    public static final int PLAY_AGAIN = BotProtocol.END;
+    public static final int CLOSED = -1;
+
+    private final BotProtocol protocol;
+    private final int[] wantedDifficulty;
+    private final GameStatistics statistics = new GameStatistics();
+    private final BoardChange lastChange = new BoardChange();
+    private final List<BoardListener> listeners = new ArrayList<>();
+    private final ActionBatch noActions = new ActionBatch();
+    private int[] difficulty;
+    private SplittableRandom random;
+    private int rows;
+    private int cols;
+    //The board as sent by the runner, row * cols + col
+    private byte[] cells = new byte[0];
+    private RemoteView boardView;
+    private long version;
+    private int gameStatus = GAME_LOST;
+    private long flagCount;
+    //true when an action has been sent since startMove()
+    private boolean acted;
+
+    /**
+     * Connects to a runner
+     * @param address SocketAddress the runner listens on
+     * @param difficulty int[] the difficulty to play, as the difficulty constants in Constants.java
+     * @return RemoteSession waiting for the first game
+     * @throws IOException if the runner can not be reached
+     */
+    public static RemoteSession connect(SocketAddress address, int[] difficulty) throws IOException {
+        return connect(address, 0, difficulty);
+    }
+
+    /**
+     * Connects to a runner that started this process
+     * @param address SocketAddress the runner listens on
+     * @param token long token the runner started the process with
+     * @param difficulty int[] the difficulty to play, as the difficulty constants in Constants.java
+     * @return RemoteSession waiting for the first game
+     * @throws IOException if the runner can not be reached
+     */
+    public static RemoteSession connect(SocketAddress address, long token, int[] difficulty) throws IOException {
+        return new RemoteSession(SocketChannel.open(address), token, difficulty);
+    }
+
+    /**
+     * @param channel SocketChannel connected to the runner
+     * @param token long token the runner started the process with, 0 if none
+     * @param difficulty int[] the difficulty to play, as the difficulty constants in Constants.java
+     * @throws IOException if the runner can not be reached
+     */
+    public RemoteSession(SocketChannel channel, long token, int[] difficulty) throws IOException {
+        protocol = new BotProtocol(channel);
+        wantedDifficulty = difficulty;
+        this.difficulty = difficulty;
+        protocol.begin(BotProtocol.HELLO);
+        protocol.putInt(BotProtocol.MAGIC);
+        protocol.putVarint(BotProtocol.VERSION);
+        protocol.putLong(token);
+        protocol.putVarint(difficulty[0]);
+        protocol.putVarint(difficulty[1]);
+        protocol.putVarint(difficulty[2] + 1);
+        protocol.send();
+    }
+
+    /**
+     * Waits for the runner to start a game or to ask if an other game should be played
+     * @return int GAME when a game has started, PLAY_AGAIN when the runner waits for
+     *             answer(), CLOSED when the runner has closed the connection
+     * @throws IOException if the connection is lost
+     */
+    public int next() throws IOException {
+        int type = protocol.receive();
+        if (type == BotProtocol.GAME)
+            readGame();
+        else if (type == BotProtocol.END)
+            readEnd();
+        else if (type != CLOSED)
+            throw new IOException("Error, unexpected message " + type + " from the runner");
+        return type;
+    }
+
+    /**
+     * Answers the runner after next() returned PLAY_AGAIN
+     * @param playAgain boolean true if an other game should be played
+     * @throws IOException if the connection is lost
+     */
+    public void answer(boolean playAgain) throws IOException {
+        protocol.begin(BotProtocol.ANSWER);
+        protocol.putByte(playAgain ? 1 : 0);
+        protocol.send();
+    }
+
+    /**
+     * Called before the bot is asked for its move
+     */
+    public void startMove() {
+        acted = false;
+    }
+
+    /**
+     * Called when the bot has made its move. The runner waits for an answer
+     * on every move, so a move without any action is sent as well.
+     */
+    public void endMove() {
+        if (acted)
+            return;
+        takeAutomatedActions(noActions);
+    }
+
+    private void readGame() throws IOException {
+        rows = (int) protocol.getVarint();
+        cols = (int) protocol.getVarint();
+        int bombs = (int) protocol.getVarint() - 1;
+        long seed = protocol.getLong();
+        difficulty = rows == wantedDifficulty[0] && cols == wantedDifficulty[1] && bombs == wantedDifficulty[2]
+                ? wantedDifficulty : new int[]{rows, cols, bombs};
+        random = new SplittableRandom(seed).split();
+        statistics.reset(seed);
+        if (cells.length != rows * cols)
+            cells = new byte[rows * cols];
+        Arrays.fill(cells, CELL_HIDDEN);
+        version = 0;
+        boardView = new RemoteView();
+        lastChange.clear();
+        readCells();
+    }
+
+    private void readEnd() throws IOException {
+        statistics.gameStatus = (int) protocol.getVarint();
+        statistics.turnsTaken = (int) protocol.getVarint();
+        statistics.decisions = (int) protocol.getVarint();
+        statistics.seed = protocol.getLong();
+        statistics.stopGame();
+    }
+
+    /**
+     * Reads the status, the flags and the changed locations of a GAME or CHANGE
+     */
+    private void readCells() throws IOException {
+        gameStatus = (int) protocol.getVarint();
+        flagCount = protocol.getVarint();
+        lastChange.clear();
+        for (long count = protocol.getVarint(); count > 0; count--) {
+            int index = (int) protocol.getVarint();
+            if (index < 0 || index >= cells.length)
+                throw new IOException("Error, location " + index + " is outside the board");
+            cells[index] = (byte) (protocol.getByte() + CELL_CLEAR);
+            lastChange.add(index / cols, index % cols);
+        }
+        statistics.gameStatus = gameStatus;
+        if (gameStatus != GAME_INPROGRESS)
+            statistics.stopGame();
+        if (lastChange.getCount() == 0)
+            return;
+        version++;
+        lastChange.finish(flagCount, version);
+        for (BoardListener listener : listeners)
+            listener.boardChanged(lastChange);
+    }
+
+    @Override
+    public void addBoardListener(BoardListener listener) {
+        listeners.add(listener);
+    }
+
+    @Override
+    public void removeBoardListener(BoardListener listener) {
+        listeners.remove(listener);
+    }
+
+    @Override
+    public SplittableRandom getRandom() {
+        return random;
+    }
+
+    @Override
+    public int sweep(int row, int col) {
+        return takeAutomatedAction(ACTION_SWEEP, row, col);
+    }
+
+    @Override
+    public int flag(int row, int col) {
+        return takeAutomatedAction(ACTION_FLAG, row, col);
+    }
+
+    @Override
+    public int takeAutomatedAction(int command, int row, int col) {
+        if (command != ACTION_SWEEP && command != ACTION_FLAG)
+            return gameStatus;
+        if (row < 0 || col < 0 || row >= rows || col >= cols || gameStatus != GAME_INPROGRESS)
+            return gameStatus;
+        protocol.begin(BotProtocol.ACTIONS);
+        protocol.putVarint(BotProtocol.SINGLE);
+        putAction(command, row, col);
+        return exchange();
+    }
+
+    @Override
+    public int takeAutomatedActions(ActionBatch batch) {
+        if (gameStatus != GAME_INPROGRESS)
+            return gameStatus;
+        protocol.begin(BotProtocol.ACTIONS);
+        if (batch.isEmpty()) {
+            protocol.putVarint(BotProtocol.NONE);
+        } else {
+            protocol.putVarint(BotProtocol.BATCH);
+            protocol.putVarint(batch.size());
+            for (int i = 0; i < batch.size(); i++)
+                putAction(batch.getCommand(i), batch.getRow(i), batch.getCol(i));
+        }
+        return exchange();
+    }
+
+    private void putAction(int command, int row, int col) {
+        protocol.putVarint(BotProtocol.encodeCommand(command));
+        protocol.putVarint(row);
+        protocol.putVarint(col);
+    }
+
+    /**
+     * Sends the actions and brings the board up to date with the answer of the runner
+     */
+    private int exchange() {
+        acted = true;
+        statistics.decisions++;
+        try {
+            protocol.send();
+            if (protocol.receive() != BotProtocol.CHANGE)
+                throw new IOException("Error, expected the change of the board from the runner");
+            readCells();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return gameStatus;
+    }
+
+    @Override
+    public int getGameStatus() {
+        return gameStatus;
+    }
+
+    @Override
+    public BoardView getBoardView() {
+        return boardView;
+    }
+
+    @Override
+    public Double[][] getPlayerRevealedMatrix() {
+        Double[][] copy = new Double[rows][cols];
+        for (int row = 0; row < rows; row++)
+            for (int col = 0; col < cols; col++)
+                copy[row][col] = getPlayerValue(row, col);
+        return copy;
+    }
+
+    private Double getPlayerValue(int row, int col) {
+        byte cell = cells[row * cols + col];
+        if (cell == CELL_FLAGGED)
+            return Double.MAX_VALUE;
+        if (cell == CELL_HIDDEN)
+            return null;
+        return (double) cell;
+    }
+
+    @Override
+    public long getFlagCount() {
+        return flagCount;
+    }
+
+    @Override
+    public BoardChange getLastChange() {
+        return lastChange;
+    }
+
+    /**
+     * The statistics as far as the session knows them. The turns are sent by
+     * the runner when it asks to play again.
+     * @return GameStatistics for the game
+     */
+    @Override
+    public GameStatistics getGameStatistics() {
+        return statistics;
+    }
+
+    @Override
+    public int[] getDifficulty() {
+        return difficulty;
+    }
+
+    /**
+     * @param matrix int to specify parts of the gameboard, use matrix constants from Constants.
+     *               Only the player matrix is known to a remote session.
+     * @return String representation of the player matrix
+     */
+    @Override
+    public String toString(int matrix) {
+        if (matrix != PLAYER_MATRIX)
+            return "The matrix is only known to the runner";
+        StringBuilder stringBuilder = new StringBuilder();
+        for (int i = 0; i < rows; i++) {
+            StringJoiner row = new StringJoiner(", ", "[", "]\n");
+            for (int j = 0; j < cols; j++)
+                row.add(String.valueOf(getPlayerValue(i, j)));
+            stringBuilder.append(row);
+        }
+        return stringBuilder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return "PlayerMatrix:\n" + toString(PLAYER_MATRIX);
+    }
+
+    /**
+     * Closes the connection to the runner
+     */
+    @Override
+    public void close() throws IOException {
+        protocol.close();
+    }
+
+    private class RemoteView implements BoardView {
+        @Override
+        public int getRows() {
+            return rows;
+        }
+
+        @Override
+        public int getCols() {
+            return cols;
+        }
+
+        @Override
+        public byte getCell(int row, int col) {
+            return cells[row * cols + col];
+        }
+
+        @Override
+        public long getVersion() {
+            return version;
+        }
+    }
+}
@@ -0,0 +1,117 @@
+package barefoot.minesweeper;
+
+/**
+ * Class holds the merged statistics for many games of minesweeper.
+ * Each worker of a tournament collects its own instance, the instances
+ * are then merged into one result.
+ */
+public class TournamentStatistics {
+    private long gamesPlayed = 0;
+    private long gamesWon = 0;
+    private long gamesLost = 0;
+    //Games given up because the bot could not go on, such as a bot process that crashed
+    private long gamesForfeited = 0;
+    private long turnsTaken = 0;
+    //Wall clock time for the whole tournament in nanoseconds
+    private long elapsedNanos = 0;
+    //Seed of the tournament, every game seed is derived from it
+    private long seed = 0;
+    //Think and apply time of all moves of all games
+    private final MoveTimings timings = new MoveTimings();
+
+    /**
+     * Adds the result of a finished game
+     * @param gameStats GameStatistics for the game
+     */
+    public void add(GameStatistics gameStats) {
+        gamesPlayed++;
+        turnsTaken += gameStats.turnsTaken;
+        timings.merge(gameStats.timings);
+        if (gameStats.gameStatus == Constants.GAME_WON)
+            gamesWon++;
+        else if (gameStats.gameStatus == Constants.GAME_LOST)
+            gamesLost++;
+    }
+
+    /**
+     * Adds a game the bot could not finish. The game counts as played and not won.
+     * @param gameStats GameStatistics for the game
+     */
+    public void addForfeit(GameStatistics gameStats) {
+        gamesPlayed++;
+        gamesForfeited++;
+        turnsTaken += gameStats.turnsTaken;
+        timings.merge(gameStats.timings);
+    }
+
+    /**
+     * Adds all games from an other instance to this one
+     * @param other TournamentStatistics to merge into this instance
+     * @return TournamentStatistics this instance
+     */
+    public TournamentStatistics merge(TournamentStatistics other) {
+        gamesPlayed += other.gamesPlayed;
+        gamesWon += other.gamesWon;
+        gamesLost += other.gamesLost;
+        gamesForfeited += other.gamesForfeited;
+        turnsTaken += other.turnsTaken;
+        timings.merge(other.timings);
+        return this;
+    }
+
+    public void setElapsedNanos(long elapsedNanos) {
+        this.elapsedNanos = elapsedNanos;
+    }
+
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    public long getSeed() {
+        return seed;
+    }
+
+    public long getGamesPlayed() {
+        return gamesPlayed;
+    }
+
+    public long getGamesWon() {
+        return gamesWon;
+    }
+
+    public long getGamesLost() {
+        return gamesLost;
+    }
+
+    public long getGamesForfeited() {
+        return gamesForfeited;
+    }
+
+    public MoveTimings getTimings() {
+        return timings;
+    }
+
+    public double getWinRate() {
+        return gamesPlayed == 0 ? 0 : (double) gamesWon / gamesPlayed;
+    }
+
+    public double getAverageTurns() {
+        return gamesPlayed == 0 ? 0 : (double) turnsTaken / gamesPlayed;
+    }
+
+    public double getGamesPerSecond() {
+        return elapsedNanos == 0 ? 0 : gamesPlayed * 1e9 / elapsedNanos;
+    }
+
+    public String toString() {
+        return "Games played: " + gamesPlayed +
+                "\nGames won: " + gamesWon +
+                "\nGames lost: " + gamesLost +
+                (gamesForfeited > 0 ? "\nGames forfeited: " + gamesForfeited : "") +
+                String.format("\nWin rate: %.4f", getWinRate()) +
+                String.format("\nAverage turns: %.2f", getAverageTurns()) +
+                String.format("\nGames/sec: %.1f", getGamesPerSecond()) +
+                "\nSeed: " + seed +
+                "\n" + timings;
+    }
+}
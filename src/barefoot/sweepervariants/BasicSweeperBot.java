@@ -1,16 +1,28 @@
 package barefoot.sweepervariants;
 
+import barefoot.minesweeper.ActionBatch;
+import barefoot.minesweeper.BoardView;
 import barefoot.minesweeper.Constants;
+import barefoot.minesweeper.PlayerSession;
 import barefoot.sweepervariants.gui.MyGUISweeper;
+import barefoot.sweepervariants.solver.Frontier;
+import barefoot.sweepervariants.solver.LinearSolver;
+import barefoot.sweepervariants.solver.MineProbabilities;
+import barefoot.sweepervariants.solver.MonteCarloEstimator;
+import barefoot.sweepervariants.solver.PatternQueue;
+import barefoot.sweepervariants.solver.PatternTable;
 
-import java.awt.*;
-import java.util.Random;
+import java.util.Arrays;
 
 import static barefoot.minesweeper.Constants.*;
 
 /**
  * Basic bot that can safely sweep and flag all positions
  * that can be calculated with a brute force algorithm.
+ * When no single number gives a safe action, pairs of numbers are looked
+ * up in the PatternTable, and then all numbers together by the LinearSolver.
+ * When nothing is safe the bot guesses, sweeping the location with the lowest
+ * probability of a bomb from the MonteCarloEstimator.
  * Goal:
  *      a, Minimize number of rounds.
  *      b, Minimize processing times
@@ -27,7 +39,30 @@ import static barefoot.minesweeper.Constants.*;
  * 3. Evaluate performance on all three game difficulties.
  */
 public class BasicSweeperBot implements SweeperBot {
+    private final PatternTable patterns = PatternTable.getInstance();
+    //Pairs of numbers around the locations the bot sees change, and the actions they give
+    private final PatternQueue pairs = new PatternQueue();
+    private final ActionBatch patternActions = new ActionBatch();
+    //Without a time limit, so a game is played the same way every time it is played with the same seed
+    private final MonteCarloEstimator estimator = MonteCarloEstimator.withoutTimeLimit(1024);
+    //The numbers as equations, updated with every location the bot sees change
+    private final LinearSolver equations = new LinearSolver();
+    private final ActionBatch linearActions = new ActionBatch();
     private int gameCounter = 0;
+    //The board the bot is playing, a new board means a new game
+    private BoardView lastBoard;
+    private int rows;
+    private int cols;
+    //The board as the bot last saw it, row * cols + col
+    private byte[] knownCells;
+    //Numbers that may give a safe action, each location at most once
+    private int[] workList;
+    private boolean[] queued;
+    private int pending;
+    //Locations found changed but not yet looked around
+    private int[] changes;
+    //Location of the last action, the changes since the last move start there
+    private int lastActionIndex;
 
     /**
      * Implement to set Difficulty for the game
@@ -44,11 +79,11 @@ public class BasicSweeperBot implements SweeperBot {
      * Implement to handle how many times the game should be played.
      * GameStatistics can be fetched from game.getGameStatistics.
      *
-     * @param game an instance of the current gui
+     * @param game the session of the game that just ended
      * @return boolean that shows if an other round should be played
      */
     @Override
-    public boolean playAgain(MyGUISweeper game) {
+    public boolean playAgain(PlayerSession game) {
         System.out.println("GAME DONE");
         System.out.println(game.getGameStatistics().toString());
         return ++gameCounter < maxRounds;
@@ -58,39 +93,138 @@ public class BasicSweeperBot implements SweeperBot {
      * Implement to calculate the next action
      * Do not make multiple calls to game.takeAutomatedAction(), only one.
      *
-     * @param playerRevealedBoard Double[][] illustrating the gameboard.
-     *                            null -> not sweeped yet
-     *                            0.0 -> visual bomb
-     *                            Double.MAX -> Flagged position
-     *                            1-8 -> Number of adjacent bombs
-     * @param game                an instance of the GUI
+     * @param board BoardView illustrating the gameboard.
+     *              CELL_HIDDEN -> not sweeped yet
+     *              CELL_BOMB -> visual bomb
+     *              CELL_FLAGGED -> Flagged position
+     *              1-8 -> Number of adjacent bombs
+     * @param game  the session of the current game
      */
     @Override
-    public void takeAutomatedAction(Double[][] playerRevealedBoard, MyGUISweeper game) {
-        //Hold processing to show previous move on screen
-        try {
-            Thread.sleep(waitForNextMove);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
+    public void takeAutomatedAction(BoardView board, PlayerSession game) {
+        if (board != lastBoard)
+            startGame(board);
+        else if (lastActionIndex >= 0)
+            findChanges(board, lastActionIndex);
+        while (pending > 0) {
+            int index = workList[--pending];
+            queued[index] = false;
+            if (takeSafeBasicActionIfPossible(game, board, index))
+                return;
         }
 
-        Point startLocation = new Point(0, 0);
-        do {
-            if (takeSafeBasicActionIfPossible(game, playerRevealedBoard, startLocation))
-                return;
-            startLocation = getNextLocation(startLocation);
-        } while (startLocation != null);
+        if (takePatternActionIfPossible(game, board))
+            return;
+
+        if (takeLinearActionIfPossible(game, board))
+            return;
 
         //This is the last resort when we are desperate for progression
-        System.out.println("TIME FOR RANDOM SWEEP!!!");
-        int row;
-        int col;
-        do {
-            Random random = new Random();
-            row = random.nextInt(playerRevealedBoard.length);
-            col = random.nextInt(playerRevealedBoard[row].length);
-        } while (playerRevealedBoard[row][col] != null);
-        game.takeAutomatedAction(ACTION_SWEEP, row, col);
+        takeSafestGuess(game, board);
+    }
+
+    /**
+     * Sweeps the safest location by the probabilities of the MonteCarloEstimator,
+     * see MineProbabilities.getSafestGuess()
+     * @param game  the session of the current game
+     * @param board BoardView illustrating the gameboard
+     */
+    private void takeSafestGuess(PlayerSession game, BoardView board) {
+        Frontier frontier = Frontier.of(board);
+        int bombs = game.getDifficulty()[2];
+        int remainingBombs = bombs < 0 ? -1 : (int) (bombs - game.getFlagCount());
+        MineProbabilities probabilities = estimator.estimate(frontier, remainingBombs, game.getRandom());
+        int index = probabilities.getSafestGuess(board, game.getRandom());
+        if (index >= 0)
+            act(game, ACTION_SWEEP, index);
+    }
+
+    /**
+     * Resets the bot for a new board. Every location is assumed to be hidden,
+     * the work list is filled by findChanges() as locations are revealed.
+     * @param board BoardView of the new game
+     */
+    private void startGame(BoardView board) {
+        lastBoard = board;
+        rows = board.getRows();
+        cols = board.getCols();
+        int size = rows * cols;
+        if (knownCells == null || knownCells.length != size) {
+            knownCells = new byte[size];
+            queued = new boolean[size];
+            workList = new int[size];
+            changes = new int[size];
+        } else {
+            Arrays.fill(queued, false);
+        }
+        Arrays.fill(knownCells, CELL_HIDDEN);
+        equations.reset(board);
+        pairs.reset(board);
+        pending = 0;
+        lastActionIndex = -1;
+        //Numbers already visible, e.g. when the bot joins a game in progress
+        for (int index = 0; index < size; index++) {
+            if (board.getCell(index / cols, index % cols) != CELL_HIDDEN)
+                findChanges(board, index);
+        }
+    }
+
+    /**
+     * Finds the locations that changed since the bot last looked, starting at the
+     * location of the last action. A sweep changes the location and, if it had no
+     * adjacent bombs, the area opened around it. Only the numbers next to a changed
+     * location can give a new safe action, so only those are added to the work list.
+     * @param board BoardView illustrating the gameboard
+     * @param start int row * columns + column of the location to start at
+     */
+    private void findChanges(BoardView board, int start) {
+        int changed = 0;
+        if (updateKnownCell(board, start))
+            changes[changed++] = start;
+        while (changed > 0) {
+            int index = changes[--changed];
+            int row = index / cols, col = index % cols;
+            byte cell = knownCells[index];
+            for (int k = row - 1; k <= row + 1; k++) {
+                for (int l = col - 1; l <= col + 1; l++) {
+                    if (k < 0 || l < 0 || k >= rows || l >= cols)
+                        continue;
+                    int neighbour = k * cols + l;
+                    if (cell == CELL_CLEAR && updateKnownCell(board, neighbour))
+                        changes[changed++] = neighbour;
+                    else
+                        addToWorkList(neighbour);
+                }
+            }
+        }
+    }
+
+    /**
+     * Copies the location from the board if it changed, and adds it to the work list
+     * @return boolean true if the location changed
+     */
+    private boolean updateKnownCell(BoardView board, int index) {
+        byte cell = board.getCell(index / cols, index % cols);
+        if (cell == knownCells[index])
+            return false;
+        knownCells[index] = cell;
+        equations.update(lastBoard, index / cols, index % cols);
+        pairs.changed(lastBoard, index / cols, index % cols);
+        addToWorkList(index);
+        return true;
+    }
+
+    private void addToWorkList(int index) {
+        byte cell = knownCells[index];
+        if (cell < 1 || cell > 8 || queued[index])
+            return;
+        queued[index] = true;
+        workList[pending++] = index;
+    }
+
+    private void act(PlayerSession game, int action, int index) {
+        lastActionIndex = index;
+        game.takeAutomatedAction(action, index / cols, index % cols);
     }
 
     /**
@@ -98,76 +232,98 @@ public class BasicSweeperBot implements SweeperBot {
      * find a suitable location to sweep. If no such location can be found,
      * the bot will try to find a suitable location to flag. If no such location
      * can be found, the bot will abstain from action.
-     * @param game                an instance of the GUI
-     * @param playerRevealedBoard Double[][] illustrating the gameboard.
-     *                            null -> not sweeped yet
-     *                            0.0 -> visual bomb
-     *                            Double.MAX -> Flagged position
-     *                            1-8 -> Number of adjacent bombs
-     * @param location Point to analyze
+     * @param game     the session of the current game
+     * @param board    BoardView illustrating the gameboard.
+     *                 CELL_HIDDEN -> not sweeped yet
+     *                 CELL_BOMB -> visual bomb
+     *                 CELL_FLAGGED -> Flagged position
+     *                 1-8 -> Number of adjacent bombs
+     * @param index    int row * columns + column of the location to analyze
      * @return boolean telling the caller if an action could be performed
      */
-    private boolean takeSafeBasicActionIfPossible(MyGUISweeper game, Double[][] playerRevealedBoard, Point location) {
-        Double cellValue = playerRevealedBoard[location.x][location.y];
-        if(cellValue == null || cellValue < 1 || cellValue > 8)
+    private boolean takeSafeBasicActionIfPossible(PlayerSession game, BoardView board, int index) {
+        byte cellValue = board.getCell(index / cols, index % cols);
+        if(cellValue < 1 || cellValue > 8)
             return false;
-        Point nextActionLocation = new Point(-1, 0);
 
-        findNextSafeBasicActionLocation(playerRevealedBoard, location, true, nextActionLocation);
-        if (nextActionLocation.x >= 0) {
-            game.takeAutomatedAction(ACTION_SWEEP, nextActionLocation.x, nextActionLocation.y);
+        int nextActionLocation = findNextSafeBasicActionLocation(board, index, true);
+        if (nextActionLocation >= 0) {
+            act(game, ACTION_SWEEP, nextActionLocation);
             return true;
         }
 
-        findNextSafeBasicActionLocation(playerRevealedBoard, location, false, nextActionLocation);
-        if (nextActionLocation.x >= 0) {
-            game.takeAutomatedAction(ACTION_FLAG, nextActionLocation.x, nextActionLocation.y);
+        nextActionLocation = findNextSafeBasicActionLocation(board, index, false);
+        if (nextActionLocation >= 0) {
+            act(game, ACTION_FLAG, nextActionLocation);
             return true;
         }
         return false;
     }
 
     /**
-     * Gets the next location in the matrix, following the supplied
-     * startLocation
-     * @param startLocation Point in the matrix to use for calculation
-     *                      of next location.
-     * @return Point in the matrix for the location following the startLocation
+     * Looks up the pairs of numbers around the changed locations in the pattern
+     * table, see PatternQueue, and sweeps the first safe location found, or
+     * else flags the first bomb.
+     * @param game  the session of the current game
+     * @param board BoardView illustrating the gameboard
+     * @return boolean telling the caller if an action could be performed
+     */
+    private boolean takePatternActionIfPossible(PlayerSession game, BoardView board) {
+        patternActions.clear();
+        if (pairs.findDeductions(patterns, board, patternActions, true) == 0)
+            return false;
+        int action = 0;
+        while (action < patternActions.size() - 1 && patternActions.getCommand(action) != ACTION_SWEEP)
+            action++;
+        if (patternActions.getCommand(action) != ACTION_SWEEP)
+            action = 0;
+        act(game, patternActions.getCommand(action), patternActions.getRow(action) * cols + patternActions.getCol(action));
+        return true;
+    }
+
+    /**
+     * Sweeps the first location the LinearSolver proves safe, or else flags
+     * the first location it proves a bomb
+     * @param game  the session of the current game
+     * @param board BoardView illustrating the gameboard
+     * @return boolean telling the caller if an action could be performed
      */
-    private Point getNextLocation(Point startLocation) {
-        if (startLocation.y < getDifficulty()[1] - 1)
-            return new Point(startLocation.x, startLocation.y + 1);
-        if (startLocation.x < getDifficulty()[0] - 1)
-            return new Point(startLocation.x + 1, 0);
-        return null;
+    private boolean takeLinearActionIfPossible(PlayerSession game, BoardView board) {
+        linearActions.clear();
+        if (equations.findActions(board, linearActions) == 0)
+            return false;
+        int location = linearActions.getRow(0) * cols + linearActions.getCol(0);
+        act(game, linearActions.getCommand(0), location);
+        return true;
     }
 
     /**
      * An attempt is made to find the next location to flag or sweep. A sweepable location can be found
      * if "flagedBombsOnly" is TRUE, else a position to flag can be found.
-     * If no safe location can be found, nextLocation will have a negative value for its x-position.
-     * @param playerRevealedBoard Double[][] illustrating the gameboard.
-     *      *                            null -> not sweeped yet
-     *      *                            0.0 -> visual bomb
-     *      *                            Double.MAX -> Flagged position
-     *      *                            1-8 -> Number of adjacent bombs
-     * @param location Point to be analyzed
+     * @param board BoardView illustrating the gameboard.
+     *              CELL_HIDDEN -> not sweeped yet
+     *              CELL_BOMB -> visual bomb
+     *              CELL_FLAGGED -> Flagged position
+     *              1-8 -> Number of adjacent bombs
+     * @param index int row * columns + column of the location to be analyzed
      * @param flagedBombsOnly boolean to indicate if sweepable locations (TRUE)
      *                        or locations to flag should be searched for.
-     * @param nextLocation Point with a safe position to take action on. If x-value is negativ,
-     *                     no safe location could be found.
+     * @return int row * columns + column of a safe location to take action on,
+     *             negative if no safe location could be found.
      */
-    private void findNextSafeBasicActionLocation(Double[][] playerRevealedBoard, Point location, boolean flagedBombsOnly, Point nextLocation) {
+    private int findNextSafeBasicActionLocation(BoardView board, int index, boolean flagedBombsOnly) {
+        int row = index / cols, col = index % cols;
         int potentialBombs = 0;
-        Point firstFoundActionableLocation = null;
-        for (int k = location.x - 1; k <= location.x + 1; k++) {
-            for (int l = location.y - 1; l <= location.y + 1; l++) {
+        int firstFoundActionableLocation = -1;
+        for (int k = row - 1; k <= row + 1; k++) {
+            for (int l = col - 1; l <= col + 1; l++) {
                 //don't inspect outside the matrix
-                if (k < 0 || l < 0 || k >= getDifficulty()[0] || l >= getDifficulty()[1])
+                if (k < 0 || l < 0 || k >= rows || l >= cols)
                     continue;
-                if (playerRevealedBoard[k][l] == null || playerRevealedBoard[k][l] == Double.MAX_VALUE) {
-                    if (playerRevealedBoard[k][l] == null) {
-                        firstFoundActionableLocation = new Point(k, l);
+                byte cell = board.getCell(k, l);
+                if (cell == CELL_HIDDEN || cell == CELL_FLAGGED) {
+                    if (cell == CELL_HIDDEN) {
+                        firstFoundActionableLocation = k * cols + l;
                         potentialBombs = flagedBombsOnly ? potentialBombs : potentialBombs + 1;
                     }
                     else
@@ -175,12 +331,9 @@ public class BasicSweeperBot implements SweeperBot {
                 }
             }
         }
-        if (potentialBombs == playerRevealedBoard[location.x][location.y] && firstFoundActionableLocation != null) {
-            nextLocation.x = firstFoundActionableLocation.x;
-            nextLocation.y = firstFoundActionableLocation.y;
-            return;
-        }
-        nextLocation.x = -1;
+        if (potentialBombs == board.getCell(row, col))
+            return firstFoundActionableLocation;
+        return -1;
     }
 
     public static void main(String[] args) {
@@ -0,0 +1,68 @@
+package barefoot.sweepervariants;
+
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.PlayerSession;
+import barefoot.sweepervariants.gui.MyGUISweeper;
+import barefoot.sweepervariants.solver.AnytimeSolver;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Bot that calculates the probability of a bomb for every hidden location
+ * and always sweeps the location with the lowest probability.
+ * The moves are decided by the AnytimeSolver within a time budget per move:
+ * locations proven by the numbers are swept or flagged first, then the
+ * components of the frontier are enumerated, and those too large to enumerate
+ * in time are sampled. All locations known to be safe are swept at once, as
+ * one batch. The statistics of every game are followed by the number of moves
+ * decided by each tier of the solver.
+ */
+public class EnumerationSweeperBot implements SweeperBot {
+    public static void main(String[] args) {
+        MyGUISweeper.runAutomated(new EnumerationSweeperBot());
+    }
+
+    private final int[] difficulty;
+    private final AnytimeSolver solver;
+    private int gameCounter = 0;
+
+    public EnumerationSweeperBot() {
+        this(GAME_HARD);
+    }
+
+    /**
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     */
+    public EnumerationSweeperBot(int[] difficulty) {
+        this(difficulty, 10_000_000);
+    }
+
+    /**
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     * @param budgetNanos long time to decide a move in, in nanoseconds
+     */
+    public EnumerationSweeperBot(int[] difficulty, long budgetNanos) {
+        this.difficulty = difficulty;
+        solver = new AnytimeSolver(budgetNanos);
+    }
+
+    @Override
+    public int[] getDifficulty() {
+        return difficulty;
+    }
+
+    @Override
+    public boolean playAgain(PlayerSession game) {
+        System.out.println(game.getGameStatistics());
+        System.out.println(solver);
+        return ++gameCounter < maxRounds;
+    }
+
+    @Override
+    public void takeAutomatedAction(BoardView board, PlayerSession game) {
+        int bombs = game.getDifficulty()[2];
+        int remainingBombs = bombs < 0 ? -1 : (int) Math.max(bombs - game.getFlagCount(), 0);
+        AnytimeSolver.Decision decision = solver.decide(board, game.getLastChange(), remainingBombs, game.getRandom());
+        game.takeAutomatedActions(decision.getActions());
+    }
+}
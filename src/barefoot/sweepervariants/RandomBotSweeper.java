@@ -1,5 +1,7 @@
 package barefoot.sweepervariants;
 
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.PlayerSession;
 import barefoot.sweepervariants.gui.MyGUISweeper;
 
 import java.util.Random;
@@ -32,30 +34,19 @@ public class RandomBotSweeper implements SweeperBot{
     }
 
     @Override
-    public boolean playAgain(MyGUISweeper game) {
-        try {
-            Thread.sleep(waitForNextRound);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    public boolean playAgain(PlayerSession game) {
         System.out.println(game.getGameStatistics());
         return playedRounds++ < maxRounds;
     }
 
     @Override
-    public void takeAutomatedAction(Double[][] playerRevealedBoard, MyGUISweeper game) {
-        try {
-            Thread.sleep(waitForNextMove);
-        } catch (InterruptedException e) {
-            e.printStackTrace();
-        }
+    public void takeAutomatedAction(BoardView board, PlayerSession game) {
         int row, col;
         do {
-            Random random = new Random();
-            row = random.nextInt(playerRevealedBoard.length);
-            col = random.nextInt(playerRevealedBoard[row].length);
-        } while (playerRevealedBoard[row][col] != null);
-        boolean makeFlag = new Random().nextBoolean();
+            row = game.getRandom().nextInt(board.getRows());
+            col = game.getRandom().nextInt(board.getCols());
+        } while (board.getCell(row, col) != CELL_HIDDEN);
+        boolean makeFlag = game.getRandom().nextBoolean();
         if (makeFlag)
             game.takeAutomatedAction(ACTION_SWEEP, row, col);
         else
@@ -1,6 +1,8 @@
 package barefoot.sweepervariants;
 
+import barefoot.minesweeper.BoardView;
 import barefoot.minesweeper.Constants;
+import barefoot.minesweeper.PlayerSession;
 import barefoot.sweepervariants.gui.MyGUISweeper;
 
 import java.util.Random;
@@ -26,11 +28,11 @@ public class SimplestPossibleBot implements SweeperBot {
      * Implement to handle how many times the game should be played.
      * GameStatistics can be fetched from game.getGameStatistics.
      *
-     * @param game an instance of the current gui
+     * @param game the session of the game that just ended
      * @return boolean that shows if an other round should be played
      */
     @Override
-    public boolean playAgain(MyGUISweeper game) {
+    public boolean playAgain(PlayerSession game) {
         //Just one game will be played
         return false;
     }
@@ -39,11 +41,11 @@ public class SimplestPossibleBot implements SweeperBot {
      * Implement to calculate the next action
      * Do not make multiple calls to game.takeAutomatedAction(), only one.
      *
-     * @param playerRevealedBoard Double[][] illustrating the gameboard.
-     * @param game                an instance of the GUI
+     * @param board BoardView illustrating the gameboard.
+     * @param game  the session of the current game
      */
     @Override
-    public void takeAutomatedAction(Double[][] playerRevealedBoard, MyGUISweeper game) {
+    public void takeAutomatedAction(BoardView board, PlayerSession game) {
         Random random = new Random();
         int row = random.nextInt(Constants.GAME_EASY[1]);
         int col = random.nextInt(Constants.GAME_EASY[1]);
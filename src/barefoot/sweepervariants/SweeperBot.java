@@ -1,6 +1,7 @@
 package barefoot.sweepervariants;
 
-import barefoot.sweepervariants.gui.MyGUISweeper;
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.PlayerSession;
 
 public interface SweeperBot {
     /**
@@ -13,20 +14,25 @@ public interface SweeperBot {
     /**
      * Implement to handle how many times the game should be played.
      * GameStatistics can be fetched from game.getGameStatistics.
-     * @param game an instance of the current gui
+     * @param game the session of the game that just ended
      * @return boolean that shows if an other round should be played
      */
-    boolean playAgain(MyGUISweeper game);
+    boolean playAgain(PlayerSession game);
 
     /**
      * Implement to calculate the next action
      * Do not make multiple calls to game.takeAutomatedAction(), only one.
-     * @param playerRevealedBoard Double[][] illustrating the gameboard.
-     *                            null -> not sweeped yet
-     *                            0.0 -> visual bomb
-     *                            Double.MAX -> Flagged position
-     *                            1-8 -> Number of adjacent bombs
-     * @param game an instance of the GUI
+     * Several actions can be made as one decision with game.takeAutomatedActions().
+     * The bot is played both by the GUI and by the headless runner,
+     * so the bot should not wait for the screen, pacing is handled by the runner.
+     * @param board BoardView illustrating the gameboard, it is not a copy and
+     *              always shows the current state of the game.
+     *              CELL_HIDDEN -> not sweeped yet
+     *              CELL_BOMB -> visual bomb
+     *              CELL_FLAGGED -> Flagged position
+     *              CELL_CLEAR -> No adjacent bombs
+     *              1-8 -> Number of adjacent bombs
+     * @param game the session of the current game
      */
-    void takeAutomatedAction(Double[][] playerRevealedBoard, MyGUISweeper game);
+    void takeAutomatedAction(BoardView board, PlayerSession game);
 }
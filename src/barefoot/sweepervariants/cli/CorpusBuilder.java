@@ -0,0 +1,53 @@
+package barefoot.sweepervariants.cli;
+
+import barefoot.minesweeper.BoardCorpus;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Writes a BoardCorpus with random boards of one or more sizes, to be played
+ * by the TournamentRunner. The bombs of board number n of a size are placed
+ * from TournamentRunner.gameSeed(seed, n), the same board as game n of a
+ * tournament with the same seed. Build a corpus with 10000 boards of each
+ * difficulty and of a larger custom size with:
+ * java barefoot.sweepervariants.cli.CorpusBuilder boards.corpus 10000 42 easy medium hard 100x100x2000
+ */
+public class CorpusBuilder {
+    public static void main(String[] args) throws IOException {
+        if (args.length < 4) {
+            System.err.println("Usage: CorpusBuilder <corpus file> <boards of each size> <seed> <easy | medium | hard | ROWSxCOLSxBOMBS>...");
+            return;
+        }
+        int boards = Integer.parseInt(args[1]);
+        long seed = Long.parseLong(args[2]);
+        long started = System.nanoTime();
+        int written = 0;
+        try (BoardCorpus.Writer writer = new BoardCorpus.Writer(Paths.get(args[0]))) {
+            for (int i = 3; i < args.length; i++) {
+                int[] size = parseSize(args[i]);
+                for (int board = 0; board < boards; board++)
+                    written = writer.add(size[0], size[1], size[2], TournamentRunner.gameSeed(seed, board)) + 1;
+            }
+        }
+        System.out.printf("Boards written: %d%nSeconds: %.2f%n", written, (System.nanoTime() - started) / 1e9);
+    }
+
+    private static int[] parseSize(String size) {
+        switch (size.toLowerCase()) {
+            case "easy":
+                return GAME_EASY;
+            case "medium":
+                return GAME_MEDIUM;
+            case "hard":
+                return GAME_HARD;
+            default:
+                String[] parts = size.split("x");
+                if (parts.length != 3)
+                    throw new IllegalArgumentException("Error, a size is easy, medium, hard or ROWSxCOLSxBOMBS: " + size);
+                return new int[]{Integer.parseInt(parts[0]), Integer.parseInt(parts[1]), Integer.parseInt(parts[2])};
+        }
+    }
+}
@@ -0,0 +1,97 @@
+package barefoot.sweepervariants.cli;
+
+import barefoot.minesweeper.GameSession;
+import barefoot.minesweeper.GameStatistics;
+import barefoot.minesweeper.MoveTimings;
+import barefoot.sweepervariants.SweeperBot;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Plays a SweeperBot without any GUI. Moves are made as fast as the bot
+ * can compute them, there is no waiting between moves or rounds.
+ * Start a new headless botGame with:
+ * HeadlessSweeper.runAutomated(new BasicSweeperBot());
+ * or from the command line with the class name of the bot:
+ * java barefoot.sweepervariants.cli.HeadlessSweeper barefoot.sweepervariants.BasicSweeperBot
+ */
+public class HeadlessSweeper {
+    private final SweeperBot automationBot;
+    private final GameSession session;
+    //Timings of all rounds played
+    private final MoveTimings totalTimings = new MoveTimings();
+
+    /**
+     * Starting point for any automatedSweeperBot without a GUI.
+     * Rounds are played until the bot does not want to play again.
+     * @param bot SweeperBot an instance of a SweeperBot
+     * @see SweeperBot
+     */
+    public static void runAutomated(SweeperBot bot) {
+        new HeadlessSweeper(bot).run();
+    }
+
+    /**
+     * Plays one game on the board given by the seed, for example to replay
+     * a game from a tournament. The same bot and seed plays the same game,
+     * as long as the bot makes the same decisions.
+     * @param bot SweeperBot an instance of a SweeperBot
+     * @param seed long seed of the board, as found in GameStatistics
+     * @return GameStatistics for the game
+     */
+    public static GameStatistics replay(SweeperBot bot, long seed) {
+        HeadlessSweeper sweeper = new HeadlessSweeper(bot, seed);
+        sweeper.playGame();
+        return sweeper.session.getGameStatistics();
+    }
+
+    public HeadlessSweeper(SweeperBot bot, long seed) {
+        automationBot = bot;
+        session = new GameSession(bot.getDifficulty(), seed);
+    }
+
+    public HeadlessSweeper(SweeperBot bot) {
+        automationBot = bot;
+        session = new GameSession(bot.getDifficulty());
+    }
+
+    private void run() {
+        do {
+            playGame();
+            totalTimings.merge(session.getGameStatistics().timings);
+        } while (startNextRound());
+        System.out.println("Timings for all rounds:\n" + totalTimings);
+    }
+
+    /**
+     * Lets the bot take actions until the current game is won or lost
+     */
+    private void playGame() {
+        MoveTimings timings = session.getGameStatistics().timings;
+        while (session.getGameStatus() == GAME_INPROGRESS) {
+            timings.startMove();
+            automationBot.takeAutomatedAction(session.getBoardView(), session);
+            timings.endMove();
+        }
+    }
+
+    private boolean startNextRound() {
+        if (!automationBot.playAgain(session))
+            return false;
+        session.newGame(automationBot.getDifficulty());
+        return true;
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException {
+        if (args.length < 1 || args.length > 2) {
+            System.err.println("Usage: HeadlessSweeper <fully qualified name of a SweeperBot> [seed to replay]");
+            return;
+        }
+        Class<?> botClass = Class.forName(args[0]);
+        SweeperBot bot = (SweeperBot) botClass.getDeclaredConstructor().newInstance();
+        if (args.length == 2)
+            System.out.println(replay(bot, Long.parseLong(args[1])));
+        else
+            runAutomated(bot);
+    }
+}
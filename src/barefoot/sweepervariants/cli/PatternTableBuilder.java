@@ -0,0 +1,28 @@
+package barefoot.sweepervariants.cli;
+
+import barefoot.sweepervariants.solver.PatternTable;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+/**
+ * Builds the PatternTable and writes it as a resource. The table only has
+ * to be built again when the format of the table changes:
+ * java barefoot.sweepervariants.cli.PatternTableBuilder res/patterns.bin
+ */
+public class PatternTableBuilder {
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: PatternTableBuilder <file to write the table to>");
+            return;
+        }
+        long started = System.nanoTime();
+        PatternTable table = PatternTable.build();
+        try (OutputStream out = Files.newOutputStream(Paths.get(args[0]))) {
+            table.write(out);
+        }
+        System.out.printf("Pattern table written to %s in %.2f seconds%n", args[0], (System.nanoTime() - started) / 1e9);
+    }
+}
@@ -0,0 +1,67 @@
+package barefoot.sweepervariants.cli;
+
+import barefoot.minesweeper.RemoteSession;
+import barefoot.sweepervariants.SweeperBot;
+
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Plays a SweeperBot in its own process, for a runner in an other process.
+ * The runner holds the games and listens with a BotServer, which starts this
+ * runner for every bot it launches:
+ * java barefoot.sweepervariants.cli.RemoteBotRunner <port> barefoot.sweepervariants.BasicSweeperBot <token>
+ * The token tells the runner which of the processes it started has connected,
+ * a bot started by hand leaves it out. The bot plays until the runner closes the connection.
+ */
+public class RemoteBotRunner {
+    /**
+     * Plays every game the runner starts, for a bot started by hand
+     * @param bot SweeperBot to play
+     * @param runner SocketAddress the runner listens on
+     * @throws IOException if the connection to the runner is lost
+     */
+    public static void play(SweeperBot bot, SocketAddress runner) throws IOException {
+        play(bot, runner, 0);
+    }
+
+    /**
+     * Plays every game the runner starts
+     * @param bot SweeperBot to play
+     * @param runner SocketAddress the runner listens on
+     * @param token long token the runner started the process with, 0 if none
+     * @throws IOException if the connection to the runner is lost
+     */
+    public static void play(SweeperBot bot, SocketAddress runner, long token) throws IOException {
+        RemoteSession session = RemoteSession.connect(runner, token, bot.getDifficulty());
+        try {
+            for (int message = session.next(); message != RemoteSession.CLOSED; message = session.next()) {
+                if (message == RemoteSession.PLAY_AGAIN) {
+                    session.answer(bot.playAgain(session));
+                    continue;
+                }
+                while (session.getGameStatus() == GAME_INPROGRESS) {
+                    session.startMove();
+                    bot.takeAutomatedAction(session.getBoardView(), session);
+                    session.endMove();
+                }
+            }
+        } finally {
+            session.close();
+        }
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        if (args.length < 2 || args.length > 3) {
+            System.err.println("Usage: RemoteBotRunner <port of the runner> <fully qualified name of a SweeperBot> [token]");
+            return;
+        }
+        SweeperBot bot = (SweeperBot) Class.forName(args[1]).getDeclaredConstructor().newInstance();
+        long token = args.length == 3 ? Long.parseLong(args[2]) : 0;
+        play(bot, new InetSocketAddress(InetAddress.getLoopbackAddress(), Integer.parseInt(args[0])), token);
+    }
+}
@@ -0,0 +1,39 @@
+package barefoot.sweepervariants.cli;
+
+import barefoot.minesweeper.GameReplayer;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+
+/**
+ * Plays all games of a recorded log again, without any bot or GUI, and
+ * checks that every game ends as it did when it was recorded. Run it after
+ * a change of the engine to make sure the games are played the same way.
+ * Record a log with the TournamentRunner, then replay it with:
+ * java barefoot.sweepervariants.cli.ReplayRunner games.log
+ */
+public class ReplayRunner {
+    //The seeds of at most this many changed games are printed
+    private static final int MAX_REPORTED = 20;
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: ReplayRunner <recorded log>");
+            return;
+        }
+        GameReplayer replayer = GameReplayer.open(Paths.get(args[0]));
+        long games = 0, changed = 0;
+        long started = System.nanoTime();
+        while (replayer.next()) {
+            games++;
+            if (!replayer.isIdentical() && changed++ < MAX_REPORTED)
+                System.out.printf("Game %d changed, seed %d: recorded status %d in %d turns, replayed status %d in %d turns%n",
+                        games, replayer.getEngine().getSeed(), replayer.getRecordedStatus(), replayer.getRecordedTurns(),
+                        replayer.getEngine().getGameStatus(), replayer.getEngine().getGameStatistics().turnsTaken);
+        }
+        long elapsed = System.nanoTime() - started;
+        System.out.println("Games replayed: " + games +
+                "\nGames changed: " + changed +
+                String.format("\nGames/sec: %.1f", elapsed == 0 ? 0 : games * 1e9 / elapsed));
+    }
+}
@@ -0,0 +1,386 @@
+package barefoot.sweepervariants.cli;
+
+import barefoot.minesweeper.BoardCorpus;
+import barefoot.minesweeper.Engine;
+import barefoot.minesweeper.GameRecorder;
+import barefoot.minesweeper.GameSession;
+import barefoot.minesweeper.MoveTimings;
+import barefoot.minesweeper.TournamentStatistics;
+import barefoot.sweepervariants.SweeperBot;
+import barefoot.sweepervariants.remote.BotServer;
+import barefoot.sweepervariants.solver.NoGuessGenerator;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Supplier;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Plays a large number of games with a SweeperBot on all cores.
+ * The games are split into ranges that are played in a work stealing
+ * ForkJoinPool. Each worker thread gets its own bot and its own GameSession,
+ * kept for all the ranges it plays, nothing is shared between workers until
+ * the statistics are merged.
+ * Every game gets its own seed, derived from the seed of the tournament and
+ * the number of the game, so any game can be replayed with HeadlessSweeper.replay().
+ * Run a tournament with:
+ * TournamentRunner.runTournament(BasicSweeperBot::new, 1_000_000);
+ * or from the command line:
+ * java barefoot.sweepervariants.cli.TournamentRunner barefoot.sweepervariants.BasicSweeperBot 1000000
+ * All games can be recorded to a log, to be replayed with ReplayRunner.
+ * Instead of boards from seeds, all boards of a BoardCorpus can be played:
+ * java barefoot.sweepervariants.cli.TournamentRunner barefoot.sweepervariants.BasicSweeperBot boards.corpus
+ * or only boards that can be won without guessing, see NoGuessGenerator:
+ * java barefoot.sweepervariants.cli.TournamentRunner --no-guess barefoot.sweepervariants.BasicSweeperBot 10000
+ * Add --remote to play the bot of every worker in its own process, see BotServer.
+ * A game whose bot process crashes is counted as forfeited, and the worker
+ * goes on with a new bot process.
+ */
+public class TournamentRunner {
+    //Number of games a worker plays before the range is split no further
+    private static final int GAMES_PER_TASK = 256;
+
+    /**
+     * Plays the specified number of games on all available cores
+     * @param botFactory Supplier creating a new bot for each worker
+     * @param games int number of games to play
+     * @return TournamentStatistics with the merged result of all games
+     */
+    public static TournamentStatistics runTournament(Supplier<SweeperBot> botFactory, int games) {
+        return runTournament(botFactory, games, new SplittableRandom().nextLong());
+    }
+
+    /**
+     * Plays the specified number of games on all available cores.
+     * The same seed gives the same boards.
+     * @param botFactory Supplier creating a new bot for each worker
+     * @param games int number of games to play
+     * @param seed long seed of the tournament
+     * @return TournamentStatistics with the merged result of all games
+     */
+    public static TournamentStatistics runTournament(Supplier<SweeperBot> botFactory, int games, long seed) {
+        return runTournament(botFactory, games, seed, ForkJoinPool.commonPool());
+    }
+
+    /**
+     * Plays the specified number of games in the specified pool
+     * @param botFactory Supplier creating a new bot for each worker
+     * @param games int number of games to play
+     * @param seed long seed of the tournament
+     * @param pool ForkJoinPool to play the games in
+     * @return TournamentStatistics with the merged result of all games
+     */
+    public static TournamentStatistics runTournament(Supplier<SweeperBot> botFactory, int games, long seed, ForkJoinPool pool) {
+        long started = System.nanoTime();
+        TournamentStatistics result = pool.invoke(new GameRange(botFactory, seeded(seed), 0, games, false));
+        result.setElapsedNanos(System.nanoTime() - started);
+        result.setSeed(seed);
+        return result;
+    }
+
+    /**
+     * Plays the specified number of boards that can be won without guessing.
+     * The boards are found by the generator on all cores before the games
+     * start, the time to find them is not part of the elapsed time.
+     * Every game starts with the first sweep of the generator, made for the bot.
+     * @param botFactory Supplier creating a new bot for each worker
+     * @param generator NoGuessGenerator finding the boards
+     * @param games int number of games to play
+     * @param seed long seed of the tournament, the same seed gives the same boards
+     * @param pool ForkJoinPool to play the games in
+     * @return TournamentStatistics with the merged result of all games
+     */
+    public static TournamentStatistics runTournament(Supplier<SweeperBot> botFactory, NoGuessGenerator generator,
+                                                     int games, long seed, ForkJoinPool pool) {
+        long[] seeds = generator.generateSeeds(seed, games);
+        long started = System.nanoTime();
+        TournamentStatistics result = pool.invoke(new GameRange(botFactory, noGuess(generator, seeds), 0, games, false));
+        result.setElapsedNanos(System.nanoTime() - started);
+        result.setSeed(seed);
+        return result;
+    }
+
+    /**
+     * Plays every board of a corpus once in the specified pool. The boards are
+     * read from the mapped corpus by the workers, the file system is not touched.
+     * @param botFactory Supplier creating a new bot for each worker
+     * @param corpus BoardCorpus with the boards to play
+     * @param pool ForkJoinPool to play the games in
+     * @return TournamentStatistics with the merged result of all games
+     */
+    public static TournamentStatistics runTournament(Supplier<SweeperBot> botFactory, BoardCorpus corpus, ForkJoinPool pool) {
+        long started = System.nanoTime();
+        TournamentStatistics result = pool.invoke(new GameRange(botFactory, fromCorpus(corpus), 0, corpus.size(), false));
+        result.setElapsedNanos(System.nanoTime() - started);
+        return result;
+    }
+
+    /**
+     * Plays the specified number of games in the specified pool and records them.
+     * Each worker records to memory, the recordings are written to the log in
+     * the order of the games when the tournament is over.
+     * @param botFactory Supplier creating a new bot for each worker
+     * @param games int number of games to play
+     * @param seed long seed of the tournament
+     * @param pool ForkJoinPool to play the games in
+     * @param recording Path to the log, see GameRecorder
+     * @return TournamentStatistics with the merged result of all games
+     * @throws IOException if the log can not be written
+     */
+    public static TournamentStatistics runTournament(Supplier<SweeperBot> botFactory, int games, long seed,
+                                                     ForkJoinPool pool, Path recording) throws IOException {
+        long started = System.nanoTime();
+        GameRange tournament = new GameRange(botFactory, seeded(seed), 0, games, true);
+        TournamentStatistics result = pool.invoke(tournament);
+        result.setElapsedNanos(System.nanoTime() - started);
+        result.setSeed(seed);
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(recording), 1 << 16)) {
+            GameRecorder.writeHeader(out);
+            for (byte[] segment : tournament.recording)
+                out.write(segment);
+        }
+        return result;
+    }
+
+    /**
+     * Get the seed for a game in a tournament. The number of the game is
+     * mixed into the seed of the tournament so that neighbouring games get
+     * unrelated boards.
+     * @param seed long seed of the tournament
+     * @param game int number of the game in the tournament
+     * @return long seed for the board of the game
+     */
+    public static long gameSeed(long seed, int game) {
+        long z = seed + (game + 1) * 0x9E3779B97F4A7C15L;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Starts the games of a tournament, on boards from seeds, a corpus or a generator
+     */
+    private interface Boards {
+        /**
+         * @param session GameSession of the worker, null for the first game of a worker
+         * @param bot SweeperBot of the worker
+         * @param game int number of the game in the tournament
+         * @return GameSession playing the new game
+         */
+        GameSession startGame(GameSession session, SweeperBot bot, int game);
+    }
+
+    private static Boards seeded(long seed) {
+        return (session, bot, game) -> {
+            if (session == null)
+                return new GameSession(bot.getDifficulty(), gameSeed(seed, game));
+            session.newGame(bot.getDifficulty(), gameSeed(seed, game));
+            return session;
+        };
+    }
+
+    private static Boards fromCorpus(BoardCorpus corpus) {
+        return (session, bot, game) -> startGame(session, corpus.newEngine(game), corpus.getBombs(game));
+    }
+
+    private static Boards noGuess(NoGuessGenerator generator, long[] seeds) {
+        return (session, bot, game) -> {
+            session = startGame(session, generator.newEngine(seeds[game]), generator.getDifficulty()[2]);
+            session.sweep(generator.getFirstRow(), generator.getFirstCol());
+            return session;
+        };
+    }
+
+    private static GameSession startGame(GameSession session, Engine engine, int bombs) {
+        if (session == null)
+            return new GameSession(engine, bombs);
+        session.newGame(engine, bombs);
+        return session;
+    }
+
+    /**
+     * The bot and the session of a worker thread, kept for every range the worker plays
+     */
+    private static class Worker {
+        private final Supplier<SweeperBot> botFactory;
+        private SweeperBot bot;
+        //null until the worker starts its first game
+        private GameSession session;
+
+        Worker(Supplier<SweeperBot> botFactory) {
+            this.botFactory = botFactory;
+            bot = botFactory.get();
+        }
+
+        /**
+         * Closes a bot that can not play any more and creates a new one
+         */
+        void replaceBot() {
+            if (bot instanceof Closeable) {
+                try {
+                    ((Closeable) bot).close();
+                } catch (IOException e) {
+                    //The bot is given up anyway
+                }
+            }
+            bot = botFactory.get();
+        }
+    }
+
+    /**
+     * A range of games, split in half until it is small enough to be played by one worker
+     */
+    @SuppressWarnings("serial")
+    private static class GameRange extends RecursiveTask<TournamentStatistics> {
+        private final ThreadLocal<Worker> workers;
+        private final Boards boards;
+        private final int from;
+        private final int to;
+        private final boolean record;
+        //The recorded games of the range in order, one segment per worker
+        private List<byte[]> recording;
+
+        GameRange(Supplier<SweeperBot> botFactory, Boards boards, int from, int to, boolean record) {
+            this(ThreadLocal.withInitial(() -> new Worker(botFactory)), boards, from, to, record);
+        }
+
+        private GameRange(ThreadLocal<Worker> workers, Boards boards, int from, int to, boolean record) {
+            this.workers = workers;
+            this.boards = boards;
+            this.from = from;
+            this.to = to;
+            this.record = record;
+        }
+
+        @Override
+        protected TournamentStatistics compute() {
+            if (to - from > GAMES_PER_TASK) {
+                int middle = (from + to) >>> 1;
+                GameRange left = new GameRange(workers, boards, from, middle, record);
+                GameRange right = new GameRange(workers, boards, middle, to, record);
+                left.fork();
+                TournamentStatistics result = right.compute().merge(left.join());
+                if (record) {
+                    recording = new ArrayList<>(left.recording);
+                    recording.addAll(right.recording);
+                }
+                return result;
+            }
+            return playGames();
+        }
+
+        private TournamentStatistics playGames() {
+            TournamentStatistics stats = new TournamentStatistics();
+            Worker worker = workers.get();
+            ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+            GameRecorder recorder = record ? GameRecorder.segment(buffer) : null;
+            //The games of the range go to its own segment, from the next game on
+            if (worker.session != null)
+                worker.session.setRecorder(recorder);
+            for (int i = from; i < to; i++) {
+                GameSession session = boards.startGame(worker.session, worker.bot, i);
+                if (worker.session == null) {
+                    session.setRecorder(recorder);
+                    worker.session = session;
+                }
+                MoveTimings timings = session.getGameStatistics().timings;
+                try {
+                    while (session.getGameStatus() == GAME_INPROGRESS) {
+                        timings.startMove();
+                        worker.bot.takeAutomatedAction(session.getBoardView(), session);
+                        timings.endMove();
+                    }
+                } catch (UncheckedIOException e) {
+                    //The bot process is gone, the game is forfeited and the worker goes on with a new bot
+                    System.err.println("Game " + i + " forfeited, " + e.getMessage());
+                    stats.addForfeit(session.getGameStatistics());
+                    worker.replaceBot();
+                    continue;
+                }
+                stats.add(session.getGameStatistics());
+            }
+            if (record) {
+                try {
+                    recorder.flush();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+                recording = List.of(buffer.toByteArray());
+            }
+            return stats;
+        }
+    }
+
+    public static void main(String[] args) throws ReflectiveOperationException, IOException {
+        boolean noGuess = false, remote = false;
+        while (args.length > 0 && args[0].startsWith("--")) {
+            if (args[0].equals("--no-guess")) {
+                noGuess = true;
+            } else if (args[0].equals("--remote")) {
+                remote = true;
+            } else {
+                System.err.println("Unknown option " + args[0]);
+                return;
+            }
+            args = Arrays.copyOfRange(args, 1, args.length);
+        }
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("Usage: TournamentRunner [--no-guess] [--remote] <fully qualified name of a SweeperBot> <number of games | board corpus> [seed [file to record to]]");
+            return;
+        }
+        boolean fromCorpus = !args[1].matches("\\d+");
+        if (fromCorpus && (noGuess || args.length > 2)) {
+            System.err.println("The boards of a corpus are played as they are, without --no-guess, a seed or a recording");
+            return;
+        }
+        if (noGuess && args.length == 4) {
+            System.err.println("Games with --no-guess can not be recorded");
+            return;
+        }
+        Class<?> botClass = Class.forName(args[0]);
+        BoardCorpus corpus = fromCorpus ? BoardCorpus.open(Paths.get(args[1])) : null;
+        int games = corpus == null ? Integer.parseInt(args[1]) : corpus.size();
+        long seed = args.length >= 3 ? Long.parseLong(args[2]) : new SplittableRandom().nextLong();
+        String botName = args[0];
+        Supplier<SweeperBot> localFactory = () -> {
+            try {
+                return (SweeperBot) botClass.getDeclaredConstructor().newInstance();
+            } catch (ReflectiveOperationException e) {
+                throw new IllegalArgumentException("Could not create bot " + botName, e);
+            }
+        };
+        //Every worker plays its own bot process, see BotServer
+        BotServer server = remote ? new BotServer() : null;
+        Supplier<SweeperBot> botFactory = remote ? server.botFactory(botName) : localFactory;
+        TournamentStatistics result;
+        try {
+            if (corpus != null)
+                result = runTournament(botFactory, corpus, ForkJoinPool.commonPool());
+            else if (noGuess)
+                result = runTournament(botFactory, new NoGuessGenerator(localFactory.get().getDifficulty()),
+                        games, seed, ForkJoinPool.commonPool());
+            else if (args.length == 4)
+                result = runTournament(botFactory, games, seed, ForkJoinPool.commonPool(), Paths.get(args[3]));
+            else
+                result = runTournament(botFactory, games, seed);
+        } finally {
+            if (server != null)
+                server.close();
+        }
+        System.out.println(result);
+    }
+}
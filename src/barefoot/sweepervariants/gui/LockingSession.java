@@ -0,0 +1,117 @@
+package barefoot.sweepervariants.gui;
+
+import barefoot.minesweeper.ActionBatch;
+import barefoot.minesweeper.BoardChange;
+import barefoot.minesweeper.BoardListener;
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.GameStatistics;
+import barefoot.minesweeper.PlayerSession;
+
+import java.util.SplittableRandom;
+
+/**
+ * The session handed to a bot played in the GUI. Every action is made while
+ * holding the board lock, so the board is never painted in the middle of an
+ * action, but the bot thinks without the lock and the screen is not held up.
+ */
+class LockingSession implements PlayerSession {
+    private final PlayerSession session;
+    private final Object boardLock;
+
+    /**
+     * @param session PlayerSession of the game
+     * @param boardLock Object held while the board is changed and while it is painted
+     */
+    LockingSession(PlayerSession session, Object boardLock) {
+        this.session = session;
+        this.boardLock = boardLock;
+    }
+
+    @Override
+    public int takeAutomatedAction(int command, int row, int col) {
+        synchronized (boardLock) {
+            return session.takeAutomatedAction(command, row, col);
+        }
+    }
+
+    @Override
+    public int sweep(int row, int col) {
+        synchronized (boardLock) {
+            return session.sweep(row, col);
+        }
+    }
+
+    @Override
+    public int flag(int row, int col) {
+        synchronized (boardLock) {
+            return session.flag(row, col);
+        }
+    }
+
+    @Override
+    public int takeAutomatedActions(ActionBatch batch) {
+        synchronized (boardLock) {
+            return session.takeAutomatedActions(batch);
+        }
+    }
+
+    @Override
+    public SplittableRandom getRandom() {
+        return session.getRandom();
+    }
+
+    @Override
+    public int getGameStatus() {
+        return session.getGameStatus();
+    }
+
+    @Override
+    public BoardView getBoardView() {
+        return session.getBoardView();
+    }
+
+    @Override
+    public Double[][] getPlayerRevealedMatrix() {
+        return session.getPlayerRevealedMatrix();
+    }
+
+    @Override
+    public long getFlagCount() {
+        return session.getFlagCount();
+    }
+
+    @Override
+    public BoardChange getLastChange() {
+        return session.getLastChange();
+    }
+
+    @Override
+    public GameStatistics getGameStatistics() {
+        return session.getGameStatistics();
+    }
+
+    @Override
+    public int[] getDifficulty() {
+        return session.getDifficulty();
+    }
+
+    @Override
+    public void addBoardListener(BoardListener listener) {
+        session.addBoardListener(listener);
+    }
+
+    @Override
+    public void removeBoardListener(BoardListener listener) {
+        session.removeBoardListener(listener);
+    }
+
+    @Override
+    public String toString(int matrix) {
+        return session.toString(matrix);
+    }
+
+    @Override
+    public String toString() {
+        return session.toString();
+    }
+}
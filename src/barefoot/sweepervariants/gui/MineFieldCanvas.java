@@ -0,0 +1,184 @@
+package barefoot.sweepervariants.gui;
+
+import barefoot.minesweeper.BoardChange;
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.MoveTimings;
+
+import javax.imageio.ImageIO;
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Paints the whole minefield in one component. Every kind of location is
+ * drawn once to a tile of the right size, painting the board is then only a
+ * matter of copying tiles, and only the part of the board that has changed
+ * is painted again. A click is turned into a location by dividing the
+ * mouse position with the size of a tile.
+ */
+@SuppressWarnings("serial")
+public class MineFieldCanvas extends JComponent {
+    /**
+     * Is told when the player clicks a location
+     */
+    interface CellListener {
+        /**
+         * @param row int row of the clicked location
+         * @param col int column of the clicked location
+         * @param flag boolean true for a right click, that flags the location
+         */
+        void cellClicked(int row, int col, boolean flag);
+    }
+
+    //Tiles are indexed by the value of the location + 1, CELL_CLEAR is -1
+    private static final int TILE_TYPES = CELL_FLAGGED + 2;
+
+    private static Image grass;
+    private static Image bomb;
+    private static Image flag;
+    private static Image empty;
+
+    //Held by the game while it changes the board
+    private final Object boardLock;
+    private BoardView board;
+    private int tileSize;
+    private BufferedImage[] tiles;
+    //The render time of every paint is recorded here
+    private MoveTimings timings;
+
+    /**
+     * @param listener CellListener told about clicks on the field
+     * @param boardLock Object held while the board is changed, the board is painted while holding it
+     */
+    MineFieldCanvas(CellListener listener, Object boardLock) {
+        this.boardLock = boardLock;
+        loadResources();
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                if (board == null)
+                    return;
+                int row = e.getY() / tileSize;
+                int col = e.getX() / tileSize;
+                if (row >= board.getRows() || col >= board.getCols())
+                    return;
+                listener.cellClicked(row, col, SwingUtilities.isRightMouseButton(e));
+            }
+        });
+    }
+
+    private void loadResources() {
+        if (grass == null) {
+            try {
+                grass = ImageIO.read(getClass().getResource("/grass.png"));
+                flag = ImageIO.read(getClass().getResource("/flag.png"));
+                bomb = ImageIO.read(getClass().getResource("/mine8.png"));
+                empty = ImageIO.read(getClass().getResource("/empty.png"));
+            } catch (IOException e) {
+                e.printStackTrace();
+            }
+        }
+    }
+
+    /**
+     * Shows a new board
+     * @param board BoardView to paint
+     * @param tileSize int width and height of a location in pixels
+     * @param timings MoveTimings of the game, the render time is recorded there
+     */
+    void setBoard(BoardView board, int tileSize, MoveTimings timings) {
+        this.board = board;
+        this.timings = timings;
+        if (tiles == null || tileSize != this.tileSize)
+            tiles = createTiles(tileSize);
+        this.tileSize = tileSize;
+        setPreferredSize(new Dimension(board.getCols() * tileSize, board.getRows() * tileSize));
+        revalidate();
+        repaint();
+    }
+
+    /**
+     * Paints the changed locations again, the smallest rectangle holding all of them
+     * @param change BoardChange from the last sweep or flag
+     */
+    void repaintCells(BoardChange change) {
+        if (change.getCount() == 0)
+            return;
+        int top = Integer.MAX_VALUE, left = Integer.MAX_VALUE, bottom = -1, right = -1;
+        for (int i = 0; i < change.getCount(); i++) {
+            top = Math.min(top, change.getRow(i));
+            bottom = Math.max(bottom, change.getRow(i));
+            left = Math.min(left, change.getCol(i));
+            right = Math.max(right, change.getCol(i));
+        }
+        repaint(left * tileSize, top * tileSize, (right - left + 1) * tileSize, (bottom - top + 1) * tileSize);
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        if (board == null)
+            return;
+        long paintStarted = System.nanoTime();
+        Rectangle clip = g.getClipBounds();
+        if (clip == null)
+            clip = new Rectangle(0, 0, getWidth(), getHeight());
+        int firstRow = Math.max(clip.y / tileSize, 0);
+        int lastRow = Math.min((clip.y + clip.height - 1) / tileSize, board.getRows() - 1);
+        int firstCol = Math.max(clip.x / tileSize, 0);
+        int lastCol = Math.min((clip.x + clip.width - 1) / tileSize, board.getCols() - 1);
+        synchronized (boardLock) {
+            for (int row = firstRow; row <= lastRow; row++) {
+                for (int col = firstCol; col <= lastCol; col++)
+                    g.drawImage(tiles[board.getCell(row, col) + 1], col * tileSize, row * tileSize, null);
+            }
+        }
+        timings.recordRender(System.nanoTime() - paintStarted);
+    }
+
+    /**
+     * Draws every kind of location once, scaled to the tile size
+     */
+    private static BufferedImage[] createTiles(int size) {
+        BufferedImage[] tiles = new BufferedImage[TILE_TYPES];
+        tiles[CELL_HIDDEN + 1] = scaledTile(grass, size);
+        tiles[CELL_FLAGGED + 1] = scaledTile(flag, size);
+        tiles[CELL_BOMB + 1] = scaledTile(bomb, size);
+        tiles[CELL_CLEAR + 1] = scaledTile(empty, size);
+        Font font = new Font("Arial", Font.BOLD, Math.min(22, size * 3 / 5));
+        for (int number = 1; number <= 8; number++)
+            tiles[number + 1] = numberTile(number, size, font);
+        return tiles;
+    }
+
+    private static BufferedImage scaledTile(Image image, int size) {
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BICUBIC);
+        if (image != null)
+            g.drawImage(image, 0, 0, size, size, null);
+        g.dispose();
+        return tile;
+    }
+
+    private static BufferedImage numberTile(int number, int size, Font font) {
+        BufferedImage tile = new BufferedImage(size, size, BufferedImage.TYPE_INT_ARGB);
+        Graphics2D g = tile.createGraphics();
+        g.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        g.setColor(new Color(238, 238, 238));
+        g.fillRect(0, 0, size, size);
+        g.setColor(Color.GRAY);
+        g.drawRect(0, 0, size - 1, size - 1);
+        g.setColor(Color.BLUE);
+        g.setFont(font);
+        FontMetrics metrics = g.getFontMetrics();
+        String text = "" + number;
+        g.drawString(text, (size - metrics.stringWidth(text)) / 2, (size - metrics.getHeight()) / 2 + metrics.getAscent());
+        g.dispose();
+        return tile;
+    }
+}
@@ -1,20 +1,23 @@
 package barefoot.sweepervariants.gui;
 
-import barefoot.minesweeper.Engine;
+import barefoot.minesweeper.BoardChange;
+import barefoot.minesweeper.GameSession;
 import barefoot.minesweeper.GameStatistics;
+import barefoot.minesweeper.MoveTimings;
+import barefoot.minesweeper.PlayerSession;
 import barefoot.sweepervariants.SweeperBot;
 
 import javax.imageio.ImageIO;
 import javax.swing.*;
 
 import java.awt.*;
-import java.awt.event.MouseAdapter;
-import java.awt.event.MouseEvent;
 import java.io.IOException;
-import java.util.Arrays;
+import java.lang.reflect.InvocationTargetException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import static barefoot.minesweeper.Constants.*;
-import static barefoot.sweepervariants.gui.GroundButton.GROUND_FLAG;
 import static javax.swing.WindowConstants.EXIT_ON_CLOSE;
 
 public class MyGUISweeper {
@@ -23,11 +26,30 @@ public class MyGUISweeper {
     private JPanel mineField;
     private JLabel roundLabel;
 
-    private Engine engine;
+    //Largest size of the minefield on screen, in pixels
+    private static final int MAX_FIELD_WIDTH = 1120;
+    private static final int MAX_FIELD_HEIGHT = 540;
+    private static final int MIN_TILE_SIZE = 12;
+
+    //Held while the board is changed and while it is painted
+    private final Object boardLock = new Object();
+    private final MineFieldCanvas canvas = new MineFieldCanvas(this::cellClicked, boardLock);
+    private GameSession session;
+    //The session as the bot plays it, see LockingSession
+    private PlayerSession botSession;
     private int[] difficulty;
     private Image bomb, ballon;
+    //true while an update of the labels is waiting for the event dispatch thread
+    private final AtomicBoolean labelsPending = new AtomicBoolean();
     //BOT
     private final SweeperBot automationBot;
+    private final Pacing pacing;
+    //All moves of the bot are made on this thread, one after the other
+    private final ExecutorService gameLoop = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "game-loop");
+        thread.setDaemon(true);
+        return thread;
+    });
 
     /**
      * Starting point for any automatedSweeperBot.
@@ -38,49 +60,46 @@ public class MyGUISweeper {
      * @see SweeperBot
      */
     public static void runAutomated(SweeperBot bot) {
-        setUpGUI(bot);
+        runAutomated(bot, Pacing.realTime());
     }
 
     /**
-     * All actions of a SweeperBot implementation should be through this metod
-     * @param command int as representeb by the Action constants in Constants
-     * @param row int for row in the matrix
-     * @param col int for column in the matrix
-     * @see SweeperBot
+     * Starting point for any automatedSweeperBot, played at the supplied pace.
+     * Use Pacing.turbo() to see how the bot plays at full speed.
+     * @param bot SweeperBot an instance of a SweeperBot
+     * @param pacing Pacing deciding how long to wait before each move and round
      */
-    public void takeAutomatedAction(int command, int row, int col) {
-        if (command == ACTION_SWEEP)
-            hitButtonAt(row, col);
-        if (command == ACTION_FLAG)
-            flagButton(row, col);
+    public static void runAutomated(SweeperBot bot, Pacing pacing) {
+        SwingUtilities.invokeLater(() -> setUpGUI(bot, pacing));
     }
 
-    private void flagButton(int row, int col) {
-        if (row >= difficulty[0] && col >= difficulty[1]
-                || row < 0 || col < 0) {
-            refreshAllButtons();
-            handleGameLoop();
-            return;
-        }
-        engine.placeFlag(row, col);
-        countBombs();
-        refreshAllButtons();
-        handleGameLoop();
+    /**
+     * Paints the changed locations and the number of bombs left to flag
+     * @param change BoardChange from the last sweep or flag
+     */
+    private void showChange(BoardChange change) {
+        canvas.repaintCells(change);
+        showLabels();
     }
 
-    private void countBombs() {
-        int bombs = difficulty[2];
-        Double[][] board = engine.getPlayerRevealedMatrix();
-        for (int i = 0; i < difficulty[0]; i++) {
-            for (int j = 0; j < difficulty[1]; j++) {
-                if (board[i][j] != null && board[i][j] == Double.MAX_VALUE)
-                    bombs--;
-            }
-        }
-        bombLabel.setText("" + bombs);
+    /**
+     * Updates the labels on the event dispatch thread. When the bot moves faster
+     * than the screen, only the latest state is shown.
+     */
+    private void showLabels() {
+        if (SwingUtilities.isEventDispatchThread()) {
+            labelsPending.set(false);
+            bombLabel.setText("" + (difficulty[2] - session.getFlagCount()));
+            roundLabel.setText("" + session.getGameStatistics().turnsTaken);
+        } else if (labelsPending.compareAndSet(false, true))
+            SwingUtilities.invokeLater(this::showLabels);
     }
 
     public MyGUISweeper(SweeperBot bot) {
+        this(bot, Pacing.realTime());
+    }
+
+    public MyGUISweeper(SweeperBot bot, Pacing pacing) {
         try {
             bomb = ImageIO.read(getClass().getResource("/mine8.png"));
             ballon = ImageIO.read(getClass().getResource("/balloons.png"));
@@ -88,6 +107,7 @@ public class MyGUISweeper {
             e.printStackTrace();
         }
         automationBot = bot;
+        this.pacing = pacing;
         startNewGame();
     }
 
@@ -109,111 +129,170 @@ public class MyGUISweeper {
                 difficulty = GAME_HARD;
         } else
             difficulty = automationBot.getDifficulty();
-        engine = new Engine(difficulty[0], difficulty[1], difficulty[2]);
+        if (session == null) {
+            session = new GameSession(difficulty);
+            session.addBoardListener(this::showChange);
+            botSession = new LockingSession(session, boardLock);
+        } else
+            session.newGame(difficulty);
         bombLabel.setText("" + difficulty[2]);
         repaintGUI();
-        if (automationBot != null)
-            new Thread(() -> automationBot.takeAutomatedAction(engine.getPlayerRevealedMatrix(), this)).start();
     }
 
     private void hitButtonAt(int row, int col) {
-        engine.sweepLocation(row, col);
-        refreshAllButtons();
+        synchronized (boardLock) {
+            session.sweep(row, col);
+        }
         handleGameLoop();
     }
 
-    private void repaintGUI() {
-        int buttonSize = difficulty[0] == 9 ? 48 : 35;
-        mineField.removeAll();
-        mineField.setPreferredSize(new Dimension(difficulty[1] * buttonSize + 10, difficulty[0] * buttonSize + 25));
-        Double[][] matrix = engine.getPlayerRevealedMatrix();
-        for (int i = 0; i < difficulty[0]; i++) {
-            for (int j = 0; j < difficulty[1]; j++) {
-                Double type = matrix[i][j];
-                GroundButton b = new GroundButton(type, buttonSize);
-                b.addMouseListener(new MouseAdapter() {
-                    @Override
-                    public void mouseClicked(MouseEvent e) {
-                        super.mouseClicked(e);
-                        if (engine.getGameStatus() != GAME_INPROGRESS)
-                            return;
-                        if (SwingUtilities.isRightMouseButton(e)) {
-                            int pos = Arrays.asList(mineField.getComponents()).indexOf(b);
-                            int row = pos / difficulty[1];
-                            int col = pos % difficulty[1];
-                            engine.placeFlag(row, col);
-                            countBombs();
-                            refreshAllButtons();
-                            //mineField.revalidate();
-                            //mineField.repaint();
-                        }
-                    }
-                });
-                b.addActionListener((e) -> {
-                    if (engine.getGameStatus() != GAME_INPROGRESS)
-                        return;
-                    if (b.groundType != GroundButton.GROUND_GRASS && b.groundType != GROUND_FLAG)
-                        return;
-                    int pos = Arrays.asList(mineField.getComponents()).indexOf(b);
-                    int row = pos / difficulty[1];
-                    int col = pos % difficulty[1];
-                    hitButtonAt(row, col);
-                });
-                mineField.add(b);
+    /**
+     * Starts playing the bot on the game loop thread
+     */
+    private void startAutomation() {
+        gameLoop.execute(this::playAutomated);
+    }
+
+    /**
+     * Plays the bot until it does not want to play an other round. Runs on the
+     * game loop thread, the screen is updated on the event dispatch thread.
+     * Every action of the bot is made while holding the board lock, so the board
+     * is never painted in the middle of an action. The bot thinks without the lock.
+     */
+    private void playAutomated() {
+        do {
+            long nextMove = System.nanoTime();
+            while (session.getGameStatus() == GAME_INPROGRESS) {
+                nextMove = waitForMove(nextMove);
+                MoveTimings timings = session.getGameStatistics().timings;
+                timings.startMove();
+                automationBot.takeAutomatedAction(session.getBoardView(), botSession);
+                timings.endMove();
+                showLabels();
             }
+            //The finished game is shown on screen for a while before the next one starts
+            pause(pacing.getRoundDelay());
+        } while (automationBot.playAgain(botSession) && onEventThread(this::startNewGame));
+        SwingUtilities.invokeLater(() -> JOptionPane.showMessageDialog(mainPanel, "Simuleringen är slutförd", "Klart",
+                JOptionPane.INFORMATION_MESSAGE, new ImageIcon(ballon)));
+    }
+
+    /**
+     * Runs a task on the event dispatch thread and waits for it
+     * @return boolean true if the task was run
+     */
+    private boolean onEventThread(Runnable task) {
+        try {
+            SwingUtilities.invokeAndWait(task);
+            return true;
+        } catch (InterruptedException | InvocationTargetException e) {
+            e.printStackTrace();
+            return false;
         }
+    }
+
+    /**
+     * Waits before the next move, see Pacing
+     * @param lastMove long System.nanoTime() the last move was scheduled at
+     * @return long System.nanoTime() the next move is scheduled at
+     */
+    private long waitForMove(long lastMove) {
+        long period = pacing.getMovePeriodNanos();
+        if (period == 0) {
+            pause(pacing.getMoveDelay());
+            return System.nanoTime();
+        }
+        long now = System.nanoTime();
+        long nextMove = Math.max(lastMove + period, now);
+        pauseNanos(nextMove - now);
+        return nextMove;
+    }
+
+    private void pause(int millis) {
+        pauseNanos(millis * 1_000_000L);
+    }
+
+    private void pauseNanos(long nanos) {
+        if (nanos <= 0)
+            return;
+        try {
+            Thread.sleep(nanos / 1_000_000, (int) (nanos % 1_000_000));
+        } catch (InterruptedException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Shows the board of a new game. The tiles are made smaller for large boards,
+     * a board that does not fit even then can be scrolled.
+     */
+    private void repaintGUI() {
+        int tileSize = difficulty[0] == 9 ? 48 : 35;
+        tileSize = Math.min(tileSize, Math.min(MAX_FIELD_WIDTH / difficulty[1], MAX_FIELD_HEIGHT / difficulty[0]));
+        tileSize = Math.max(tileSize, MIN_TILE_SIZE);
+        canvas.setBoard(session.getBoardView(), tileSize, session.getGameStatistics().timings);
+        int width = Math.min(difficulty[1] * tileSize, MAX_FIELD_WIDTH);
+        int height = Math.min(difficulty[0] * tileSize, MAX_FIELD_HEIGHT);
+        mineField.removeAll();
+        if (width < difficulty[1] * tileSize || height < difficulty[0] * tileSize) {
+            JScrollPane scrollPane = new JScrollPane(canvas);
+            scrollPane.setPreferredSize(new Dimension(width, height));
+            mineField.add(scrollPane);
+        } else
+            mineField.add(canvas);
+        mineField.setPreferredSize(new Dimension(width + 10, height + 25));
         mineField.revalidate();
         mineField.repaint();
     }
 
+    /**
+     * A click from the player on the minefield
+     */
+    private void cellClicked(int row, int col, boolean flag) {
+        if (session.getGameStatus() != GAME_INPROGRESS)
+            return;
+        if (flag) {
+            synchronized (boardLock) {
+                session.flag(row, col);
+            }
+            return;
+        }
+        byte cell = session.getBoardView().getCell(row, col);
+        if (cell != CELL_HIDDEN && cell != CELL_FLAGGED)
+            return;
+        hitButtonAt(row, col);
+    }
+
     /**
      * Get the statistics for the current game
      * @return GameStatistics with all stats for the game
      */
     public GameStatistics getGameStatistics() {
-        return engine.getGameStatistics();
+        return session.getGameStatistics();
     }
 
+    /**
+     * Shows the result of a sweep made by the player
+     */
     private void handleGameLoop() {
-        roundLabel.setText("" + engine.getGameStatistics().turnsTaken);
-        if (engine.getGameStatus() == GAME_LOST) {
-            if (automationBot == null) {
-                Image img = bomb;
-                int result = JOptionPane.showConfirmDialog(mainPanel, "Boooom!\n Vill du försöka igen?", "Game Over"
-                        , JOptionPane.YES_NO_OPTION, JOptionPane.INFORMATION_MESSAGE, new ImageIcon(img));
-                if (result == JOptionPane.YES_OPTION)
-                    startNewGame();
-            } else if (automationBot.playAgain(this)) {
-                new Thread(this::startNewGame).start();
-            } else
-                JOptionPane.showMessageDialog(mainPanel, "Simuleringen är slutförd", "Klart",
-                        JOptionPane.INFORMATION_MESSAGE, new ImageIcon(ballon));
-        } else if (engine.getGameStatus() == GAME_WON) {
-            if (automationBot == null) {
-                Image img = ballon;
-                int result = JOptionPane.showConfirmDialog(mainPanel, "Bravo!\n Vill du försöka igen?", "Game Over"
-                        , JOptionPane.YES_NO_OPTION, JOptionPane.INFORMATION_MESSAGE, new ImageIcon(img));
-                if (result == JOptionPane.YES_OPTION)
-                    startNewGame();
-            } else if (automationBot.playAgain(this)) {
-                new Thread(this::startNewGame).start();
-            }
-        } else if (automationBot != null)
-            new Thread(() -> automationBot.takeAutomatedAction(engine.getPlayerRevealedMatrix(), MyGUISweeper.this)).start();
-    }
-
-    private void refreshAllButtons() {
-        Double[][] matrix = engine.getPlayerRevealedMatrix();
-        for (int i = 0; i < mineField.getComponentCount(); i++) {
-            GroundButton b = (GroundButton) mineField.getComponent(i);
-            int row = i / difficulty[1];
-            int col = i % difficulty[1];
-            Double type = matrix[row][col];
-            b.updateType(type);
+        roundLabel.setText("" + session.getGameStatistics().turnsTaken);
+        int status = session.getGameStatus();
+        if (status == GAME_LOST) {
+            Image img = bomb;
+            int result = JOptionPane.showConfirmDialog(mainPanel, "Boooom!\n Vill du försöka igen?", "Game Over"
+                    , JOptionPane.YES_NO_OPTION, JOptionPane.INFORMATION_MESSAGE, new ImageIcon(img));
+            if (result == JOptionPane.YES_OPTION)
+                startNewGame();
+        } else if (status == GAME_WON) {
+            Image img = ballon;
+            int result = JOptionPane.showConfirmDialog(mainPanel, "Bravo!\n Vill du försöka igen?", "Game Over"
+                    , JOptionPane.YES_NO_OPTION, JOptionPane.INFORMATION_MESSAGE, new ImageIcon(img));
+            if (result == JOptionPane.YES_OPTION)
+                startNewGame();
         }
     }
 
-    private static void setUpGUI(SweeperBot automated) {
+    private static void setUpGUI(SweeperBot automated, Pacing pacing) {
         //Skapa ditt fönster
         String namn = "Minesweeper";
         JFrame frame = new JFrame(namn);
@@ -226,13 +305,15 @@ public class MyGUISweeper {
         frame.setLocationRelativeTo(null);
 
         //Skapa en instans av din den här klassen som hanterar din panel
-        MyGUISweeper myForm = new MyGUISweeper(automated);
+        MyGUISweeper myForm = new MyGUISweeper(automated, pacing);
         //Lägg in din panel i programfönstret
         frame.setContentPane(myForm.mainPanel);
         //Lägg in en icon för programmet
         frame.setIconImage(myForm.bomb);
         //Visa programfönstret på skärmen
         frame.setVisible(true);
+        if (automated != null)
+            myForm.startAutomation();
     }
 
     /**
@@ -241,7 +322,7 @@ public class MyGUISweeper {
      * @return String representation of some aspect of the gameboard
      */
     public String toString(int matrix) {
-        return engine.stringifyMatrix(matrix);
+        return session.toString(matrix);
     }
 
     /**
@@ -249,10 +330,10 @@ public class MyGUISweeper {
      * @return String representing the state of the gameboard
      */
     public String toString() {
-        return engine.toString();
+        return session.toString();
     }
 
     public static void main(String[] args) {
-        setUpGUI(null);
+        SwingUtilities.invokeLater(() -> setUpGUI(null, Pacing.realTime()));
     }
 }
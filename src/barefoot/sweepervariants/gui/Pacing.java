@@ -0,0 +1,71 @@
+package barefoot.sweepervariants.gui;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * How fast a bot is played in the GUI. The bot is held back before every
+ * move and before every new round, so that the game can be followed on screen.
+ */
+public class Pacing {
+    private final int moveDelay;
+    private final int roundDelay;
+    //Time from the start of one move to the start of the next, 0 when the moves are paced by moveDelay
+    private final long movePeriodNanos;
+
+    /**
+     * @param moveDelay int milliseconds to wait before every move
+     * @param roundDelay int milliseconds to show a finished game before the next one starts
+     */
+    public Pacing(int moveDelay, int roundDelay) {
+        this(moveDelay, roundDelay, 0);
+    }
+
+    private Pacing(int moveDelay, int roundDelay, long movePeriodNanos) {
+        this.moveDelay = moveDelay;
+        this.roundDelay = roundDelay;
+        this.movePeriodNanos = movePeriodNanos;
+    }
+
+    /**
+     * Slow enough to follow every move, the delays are found in Constants
+     * @return Pacing using waitForNextMove and waitForNextRound
+     */
+    public static Pacing realTime() {
+        return new Pacing(waitForNextMove, waitForNextRound);
+    }
+
+    /**
+     * A fixed number of moves every second. The moves are scheduled from the
+     * start of the game, the time to think, move and paint is part of the period.
+     * A bot slower than the rate plays at its own speed, without catching up later.
+     * @param movesPerSecond int number of moves every second
+     * @return Pacing with the same time from the start of one move to the next
+     */
+    public static Pacing fixedRate(int movesPerSecond) {
+        return new Pacing(0, waitForNextRound, 1_000_000_000L / Math.max(movesPerSecond, 1));
+    }
+
+    /**
+     * No delays at all, the screen shows the game as often as it can
+     * @return Pacing without delays
+     */
+    public static Pacing turbo() {
+        return new Pacing(0, 0);
+    }
+
+    public int getMoveDelay() {
+        return moveDelay;
+    }
+
+    public int getRoundDelay() {
+        return roundDelay;
+    }
+
+    /**
+     * @return long nanoseconds from the start of one move to the start of the next,
+     *              0 if the moves are paced by getMoveDelay() instead
+     */
+    public long getMovePeriodNanos() {
+        return movePeriodNanos;
+    }
+}
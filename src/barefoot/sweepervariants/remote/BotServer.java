@@ -0,0 +1,253 @@
+package barefoot.sweepervariants.remote;
+
+import barefoot.minesweeper.RemotePlayer;
+import barefoot.sweepervariants.SweeperBot;
+import barefoot.sweepervariants.cli.RemoteBotRunner;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Listens for bots playing in other processes, on a port of the loopback
+ * interface. A bot process connects with RemoteBotRunner and is played
+ * through a RemoteSweeperBot, so a bot that crashes or spends its time
+ * collecting garbage does not take down the runner.
+ * Several threads can launch bots at the same time. Every process is started
+ * with a token of its own and sends it back when it connects, whichever
+ * thread accepts the connection hands it to the thread that launched it.
+ * The bot introduces itself on a thread of its own, a connection that never
+ * does holds up nobody. A bot that does not answer within the timeout
+ * loses its connection, and the game it was playing is forfeited.
+ * Run a tournament with every worker playing its own bot process:
+ * <pre>
+ * try (BotServer server = new BotServer()) {
+ *     TournamentRunner.runTournament(server.botFactory("barefoot.sweepervariants.BasicSweeperBot"), 100_000);
+ * }
+ * </pre>
+ * or from the command line:
+ * java barefoot.sweepervariants.cli.TournamentRunner --remote barefoot.sweepervariants.BasicSweeperBot 100000
+ */
+public class BotServer implements Closeable {
+    //Time a new bot process gets to connect, in milliseconds
+    private static final long CONNECT_TIMEOUT = 30_000;
+
+    private final ServerSocketChannel server;
+    //Time a bot gets to answer, in milliseconds, see RemotePlayer
+    private final long timeout;
+    //Reads the introduction of every connection accepted
+    private final ExecutorService handshakes = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "bot-handshake");
+        thread.setDaemon(true);
+        return thread;
+    });
+    //Every bot accepted, closed with the server
+    private final List<RemoteSweeperBot> bots = new ArrayList<>();
+    //Tokens of the bots waited for, and the players connected but not yet taken, guarded by waiting
+    private final Set<Long> waiting = new HashSet<>();
+    private final Map<Long, RemotePlayer> connected = new HashMap<>();
+    //Token of the next bot launched, 0 is for bots started by someone else
+    private final AtomicLong nextToken = new AtomicLong(1);
+
+    /**
+     * Listens on a free port of the loopback interface
+     * @throws IOException if no port can be opened
+     */
+    public BotServer() throws IOException {
+        this(0);
+    }
+
+    /**
+     * @param port int port of the loopback interface to listen on, 0 for any free port
+     * @throws IOException if the port can not be opened
+     */
+    public BotServer(int port) throws IOException {
+        this(port, RemotePlayer.DEFAULT_TIMEOUT);
+    }
+
+    /**
+     * @param port int port of the loopback interface to listen on, 0 for any free port
+     * @param timeout long time a bot gets to answer, for every message, in milliseconds. 0 to wait for ever.
+     * @throws IOException if the port can not be opened
+     */
+    public BotServer(int port, long timeout) throws IOException {
+        this.timeout = timeout;
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), port));
+        server.configureBlocking(false);
+    }
+
+    public int getPort() {
+        return server.socket().getLocalPort();
+    }
+
+    /**
+     * Waits for a bot started by someone else to connect, without a token
+     * @return RemoteSweeperBot playing the bot
+     * @throws IOException if no bot connects in time
+     */
+    public RemoteSweeperBot accept() throws IOException {
+        return accept(0, null);
+    }
+
+    /**
+     * Starts a bot in a new JVM, with the class path of this one, and waits for it
+     * to connect. The output of the bot is thrown away, its errors are shown.
+     * @param botClassName String fully qualified name of a SweeperBot
+     * @return RemoteSweeperBot playing the bot
+     * @throws IOException if the bot can not be started or does not connect
+     */
+    public RemoteSweeperBot launch(String botClassName) throws IOException {
+        String java = Paths.get(System.getProperty("java.home"), "bin", "java").toString();
+        long token = nextToken.getAndIncrement();
+        Process process = new ProcessBuilder(java, "-cp", System.getProperty("java.class.path"),
+                RemoteBotRunner.class.getName(), String.valueOf(getPort()), botClassName, String.valueOf(token))
+                .redirectOutput(ProcessBuilder.Redirect.DISCARD)
+                .redirectError(ProcessBuilder.Redirect.INHERIT)
+                .start();
+        try {
+            return accept(token, process);
+        } catch (IOException e) {
+            process.destroy();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts a new bot process every time it is asked. The TournamentRunner asks
+     * once for every worker, and again when the bot of a worker has crashed.
+     * @param botClassName String fully qualified name of a SweeperBot
+     * @return Supplier of a new bot
+     * @throws UncheckedIOException from the Supplier if the bot can not be started
+     */
+    public Supplier<SweeperBot> botFactory(String botClassName) {
+        return () -> {
+            try {
+                return launch(botClassName);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        };
+    }
+
+    /**
+     * Waits for the bot with the token to connect. The connections are polled,
+     * the waiting threads do not block each other and a bot process that dies
+     * before it connects is noticed.
+     */
+    private RemoteSweeperBot accept(long token, Process process) throws IOException {
+        long deadline = System.currentTimeMillis() + CONNECT_TIMEOUT;
+        synchronized (waiting) {
+            waiting.add(token);
+        }
+        try {
+            RemotePlayer player;
+            while ((player = take(token)) == null) {
+                if (acceptConnection())
+                    continue;
+                if (process != null && !process.isAlive())
+                    throw new IOException("Error, the bot process ended with exit code " + process.exitValue());
+                if (System.currentTimeMillis() > deadline)
+                    throw new IOException("Error, no bot connected within " + CONNECT_TIMEOUT + " ms");
+                try {
+                    Thread.sleep(1);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    throw new IOException("Error, interrupted while waiting for a bot", e);
+                }
+            }
+            RemoteSweeperBot bot = new RemoteSweeperBot(player, process);
+            synchronized (bots) {
+                bots.add(bot);
+            }
+            return bot;
+        } finally {
+            //A player that connected after the wait was given up is closed
+            RemotePlayer late;
+            synchronized (waiting) {
+                waiting.remove(token);
+                late = connected.remove(token);
+            }
+            if (late != null)
+                late.close();
+        }
+    }
+
+    private RemotePlayer take(long token) {
+        synchronized (waiting) {
+            return connected.remove(token);
+        }
+    }
+
+    /**
+     * Accepts a connection, the player introduces itself on a handshake thread
+     * @return boolean false if there was no connection to accept
+     */
+    private boolean acceptConnection() throws IOException {
+        SocketChannel channel = server.accept();
+        if (channel == null)
+            return false;
+        handshakes.execute(() -> handshake(channel));
+        return true;
+    }
+
+    /**
+     * Waits for the player to introduce itself and keeps it for the thread
+     * waiting for its token. A connection nobody waits for is closed.
+     */
+    private void handshake(SocketChannel channel) {
+        try {
+            RemotePlayer player;
+            try {
+                player = new RemotePlayer(channel, timeout);
+            } catch (IOException e) {
+                //Not a bot, or it did not answer, the bots waited for are not affected
+                channel.close();
+                return;
+            }
+            synchronized (waiting) {
+                if (waiting.contains(player.getToken()) && !connected.containsKey(player.getToken())) {
+                    connected.put(player.getToken(), player);
+                    return;
+                }
+            }
+            player.close();
+        } catch (IOException e) {
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Stops listening and closes the connections to all bots
+     */
+    @Override
+    public void close() throws IOException {
+        handshakes.shutdownNow();
+        synchronized (waiting) {
+            for (RemotePlayer player : connected.values())
+                player.close();
+            connected.clear();
+        }
+        synchronized (bots) {
+            for (RemoteSweeperBot bot : bots)
+                bot.close();
+            bots.clear();
+        }
+        server.close();
+    }
+}
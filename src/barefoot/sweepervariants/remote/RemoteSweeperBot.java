@@ -0,0 +1,57 @@
+package barefoot.sweepervariants.remote;
+
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.PlayerSession;
+import barefoot.minesweeper.RemotePlayer;
+import barefoot.sweepervariants.SweeperBot;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A SweeperBot that is played in an other process. Every move is sent to the
+ * bot process and its actions are made on the game of the runner, so the bot
+ * can be played by any runner or the GUI as if it was local, see BotServer.
+ * The time of a move includes the round trip to the bot process.
+ * If the bot process crashes, the move throws an UncheckedIOException,
+ * the runner itself is not affected.
+ */
+public class RemoteSweeperBot implements SweeperBot, Closeable {
+    private final RemotePlayer player;
+    //The bot process, null if the bot was started by someone else
+    private final Process process;
+
+    /**
+     * @param player RemotePlayer connected to the bot
+     * @param process Process of the bot, destroyed when the bot is closed. null if not known.
+     */
+    public RemoteSweeperBot(RemotePlayer player, Process process) {
+        this.player = player;
+        this.process = process;
+    }
+
+    @Override
+    public int[] getDifficulty() {
+        return player.getDifficulty();
+    }
+
+    @Override
+    public boolean playAgain(PlayerSession game) {
+        return player.playAgain(game);
+    }
+
+    @Override
+    public void takeAutomatedAction(BoardView board, PlayerSession game) {
+        player.takeTurn(game);
+    }
+
+    /**
+     * Closes the connection, the bot process ends when it sees the connection closed
+     */
+    @Override
+    public void close() throws IOException {
+        player.close();
+        if (process != null)
+            process.destroy();
+    }
+}
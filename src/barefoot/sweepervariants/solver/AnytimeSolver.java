@@ -0,0 +1,286 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.ActionBatch;
+import barefoot.minesweeper.BoardChange;
+import barefoot.minesweeper.BoardView;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Decides a move within a time budget. The deductions are tried from the
+ * cheapest to the most expensive, and the first one that gives an answer
+ * decides the move:
+ * <pre>
+ *   TIER_RULES      the LinearSolver and the PatternTable prove locations safe or bombs, in microseconds
+ *   TIER_EXACT      the ConstraintSolver enumerates the components, for half the budget, and
+ *                   sweeps the locations it proves safe or else the safest location
+ *   TIER_SAMPLED    the components not enumerated in time are sampled by the MonteCarloEstimator
+ *                   for the rest of the budget, and the safest location is swept
+ *   TIER_ESTIMATED  the budget is used up before sampling could start, the safest location
+ *                   by a rough estimate of the components not enumerated is swept
+ * </pre>
+ * A move takes at most the budget and one round of sampling, however hard the
+ * position is, and time left over by the cheap tiers is used for a better guess.
+ * The tier of every decision is counted, see getDecisions().
+ * The enumeration and the sampling stop at the clock, so a move with a small
+ * budget is not always the same when a game is played again.
+ * Create one solver per bot, it keeps the equations of the game it last saw.
+ * Give it the BoardChange of the last move, and only the changed locations are
+ * looked at, without it the whole board is compared with the last move.
+ */
+public class AnytimeSolver {
+    public static final int TIER_RULES = 0;
+    public static final int TIER_EXACT = 1;
+    public static final int TIER_SAMPLED = 2;
+    public static final int TIER_ESTIMATED = 3;
+    private static final String[] TIER_NAMES = {"Rules", "Exact", "Sampled", "Estimated"};
+    //Samples per stream when there is time for them
+    private static final int MAX_SAMPLES_PER_STREAM = 1 << 16;
+
+    private final long budgetNanos;
+    private final LinearSolver equations = new LinearSolver();
+    private final PatternTable patterns = PatternTable.getInstance();
+    private final PatternQueue pairs = new PatternQueue();
+    private final ConstraintSolver solver = new ConstraintSolver();
+    private final MonteCarloEstimator estimator;
+    private final Decision decision = new Decision();
+    //Number of decisions made by each tier
+    private final long[] decisions = new long[TIER_NAMES.length];
+    //The board the equations are for, its locations as last seen and its version then
+    private BoardView lastBoard;
+    private byte[] knownCells;
+    private long knownVersion;
+
+    /**
+     * A solver with 10 milliseconds for every move
+     */
+    public AnytimeSolver() {
+        this(10_000_000);
+    }
+
+    /**
+     * @param budgetNanos long time to decide a move in, in nanoseconds
+     */
+    public AnytimeSolver(long budgetNanos) {
+        this.budgetNanos = budgetNanos;
+        estimator = new MonteCarloEstimator(budgetNanos, MAX_SAMPLES_PER_STREAM, false);
+    }
+
+    /**
+     * Decides the next move, the board is compared with the last move to find the changes
+     * @param board BoardView of the game
+     * @param remainingBombs int bombs left to find, the total number of bombs
+     *                       minus the flags. Negative if the total is not known.
+     * @param random SplittableRandom for the guesses and the samples
+     * @return Decision with the actions to take, only valid until the next call
+     */
+    public Decision decide(BoardView board, int remainingBombs, SplittableRandom random) {
+        return decide(board, null, remainingBombs, random);
+    }
+
+    /**
+     * Decides the next move
+     * @param board BoardView of the game
+     * @param change BoardChange from PlayerSession.getLastChange(), null if not known.
+     *               Used when it is the only change since the last move.
+     * @param remainingBombs int bombs left to find, the total number of bombs
+     *                       minus the flags. Negative if the total is not known.
+     * @param random SplittableRandom for the guesses and the samples
+     * @return Decision with the actions to take, only valid until the next call
+     */
+    public Decision decide(BoardView board, BoardChange change, int remainingBombs, SplittableRandom random) {
+        long started = System.nanoTime();
+        long deadline = started + budgetNanos;
+        decision.actions.clear();
+        decision.probability = 0;
+        updateEquations(board, change);
+        if (equations.findActions(board, decision.actions) > 0
+                || pairs.findDeductions(patterns, board, decision.actions, false) > 0)
+            return decided(TIER_RULES, started);
+
+        Frontier frontier = Frontier.of(board);
+        ConstraintSolver.ComponentResult[] results = solver.enumerate(frontier, remainingBombs, started + budgetNanos / 2);
+        boolean exact = true;
+        for (int c = 0; c < results.length; c++) {
+            if (!results[c].exact) {
+                exact = false;
+                continue;
+            }
+            int[] cells = frontier.getComponentCells(c);
+            for (int i = 0; i < cells.length; i++)
+                if (isSafe(results[c], i))
+                    decision.actions.sweep(frontier.getRow(cells[i]), frontier.getCol(cells[i]));
+        }
+        if (!decision.actions.isEmpty())
+            return decided(TIER_EXACT, started);
+
+        MineProbabilities probabilities;
+        int tier;
+        if (exact) {
+            probabilities = solver.combine(frontier, results, remainingBombs);
+            tier = TIER_EXACT;
+        } else if (System.nanoTime() < deadline) {
+            probabilities = estimator.estimate(frontier, remainingBombs, random, results, deadline);
+            tier = TIER_SAMPLED;
+        } else {
+            probabilities = solver.combine(frontier, results, remainingBombs);
+            tier = TIER_ESTIMATED;
+        }
+        guess(board, frontier, probabilities, random);
+        return decided(tier, started);
+    }
+
+    /**
+     * Brings the equations and the pairs up to date with the locations changed
+     * since the last move. When the change of the last action is all that
+     * happened since, only its locations are looked at.
+     */
+    private void updateEquations(BoardView board, BoardChange change) {
+        int cols = board.getCols();
+        int size = board.getRows() * cols;
+        long version = board.getVersion();
+        if (board != lastBoard) {
+            lastBoard = board;
+            if (knownCells == null || knownCells.length != size)
+                knownCells = new byte[size];
+            for (int index = 0; index < size; index++)
+                knownCells[index] = board.getCell(index / cols, index % cols);
+            equations.reset(board);
+            pairs.reset(board);
+        } else if (change != null && change.getCount() > 0 && change.getVersion() == version
+                && version == knownVersion + 1) {
+            for (int i = 0; i < change.getCount(); i++)
+                update(board, change.getRow(i), change.getCol(i));
+        } else if (version != knownVersion) {
+            for (int index = 0; index < size; index++)
+                update(board, index / cols, index % cols);
+        }
+        knownVersion = version;
+    }
+
+    private void update(BoardView board, int row, int col) {
+        int index = row * board.getCols() + col;
+        byte cell = board.getCell(row, col);
+        if (cell == knownCells[index])
+            return;
+        knownCells[index] = cell;
+        equations.update(board, row, col);
+        pairs.changed(board, row, col);
+    }
+
+    /**
+     * @return boolean true if no placement of the component has a bomb at location i
+     */
+    private static boolean isSafe(ConstraintSolver.ComponentResult result, int i) {
+        boolean placements = false;
+        for (int k = 0; k < result.counts.length; k++) {
+            if (result.cellBombs[k] == null)
+                continue;
+            if (result.cellBombs[k][i] > 0)
+                return false;
+            placements |= result.counts[k] > 0;
+        }
+        return placements;
+    }
+
+    /**
+     * Sweeps the safest location, see MineProbabilities.getSafestGuess()
+     */
+    private void guess(BoardView board, Frontier frontier, MineProbabilities probabilities, SplittableRandom random) {
+        int index = probabilities.getSafestGuess(board, random);
+        if (index < 0)
+            return;
+        int row = index / board.getCols(), col = index % board.getCols();
+        int cell = frontier.getCell(row, col);
+        decision.actions.sweep(row, col);
+        decision.probability = cell >= 0 ? probabilities.getProbability(cell) : probabilities.getUnconstrainedProbability();
+    }
+
+    private Decision decided(int tier, long started) {
+        decision.tier = tier;
+        decision.nanos = System.nanoTime() - started;
+        decisions[tier]++;
+        return decision;
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * @param tier int one of the TIER constants
+     * @return long number of moves decided by the tier
+     */
+    public long getDecisions(int tier) {
+        return decisions[tier];
+    }
+
+    public void clearDecisions() {
+        Arrays.fill(decisions, 0);
+    }
+
+    /**
+     * @param tier int one of the TIER constants
+     * @return String name of the tier
+     */
+    public static String getTierName(int tier) {
+        return TIER_NAMES[tier];
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder("Decisions:");
+        for (int tier = 0; tier < decisions.length; tier++)
+            text.append(' ').append(TIER_NAMES[tier]).append(' ').append(decisions[tier]);
+        return text.toString();
+    }
+
+    /**
+     * The actions of a move and how they were found. The solver reuses the
+     * same instance for every move.
+     */
+    public static class Decision {
+        private final ActionBatch actions = new ActionBatch();
+        private int tier;
+        private double probability;
+        private long nanos;
+
+        /**
+         * @return ActionBatch with the actions to take, the sweeps first. Empty if
+         *         there is no hidden location left.
+         */
+        public ActionBatch getActions() {
+            return actions;
+        }
+
+        /**
+         * @return int the TIER constant of the deduction that decided the move
+         */
+        public int getTier() {
+            return tier;
+        }
+
+        /**
+         * @return double probability of a bomb at the swept location, 0 when the actions are proven
+         */
+        public double getProbability() {
+            return probability;
+        }
+
+        /**
+         * @return long time it took to decide, in nanoseconds
+         */
+        public long getNanos() {
+            return nanos;
+        }
+
+        @Override
+        public String toString() {
+            return TIER_NAMES[tier] + ": " + actions.size() + " actions, probability of a bomb "
+                    + probability + " in " + nanos / 1000 + " microseconds";
+        }
+    }
+}
@@ -0,0 +1,645 @@
+package barefoot.sweepervariants.solver;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.SplittableRandom;
+
+/**
+ * Calculates the exact probability of a bomb for every hidden location.
+ * Each component of the frontier is solved on its own by enumerating all
+ * placements of bombs that agree with its constraints, with backtracking
+ * as soon as a constraint can no longer be met. The placements are counted
+ * by the number of bombs they use. The components are then weighted together
+ * with the number of ways the remaining bombs can be placed on the hidden
+ * locations that are not on the frontier.
+ * Components that are the same as on the previous move are not enumerated
+ * again, their results are remembered between moves.
+ * Components too large to enumerate are better estimated by the
+ * MonteCarloEstimator.
+ */
+public class ConstraintSolver {
+    //A component is given up when the search visits more placements than this
+    private static final long MAX_SEARCH_NODES = 1_000_000;
+    //The clock is read once every this many placements visited, minus one
+    private static final long DEADLINE_CHECK_MASK = 1023;
+
+    private HashMap<ComponentKey, ComponentResult> solved = new HashMap<>();
+    private double[] logFactorials = {0};
+
+    /**
+     * Calculates the probabilities for the frontier
+     * @param frontier Frontier to solve
+     * @param remainingBombs int bombs left to find, the total number of bombs
+     *                       minus the flags. Negative if the total is not known.
+     * @return MineProbabilities for the frontier
+     */
+    public MineProbabilities solve(Frontier frontier, int remainingBombs) {
+        return combine(frontier, enumerate(frontier, remainingBombs, MAX_SEARCH_NODES, Long.MAX_VALUE), remainingBombs);
+    }
+
+    /**
+     * Enumerates every component of the frontier until the deadline. The components
+     * not enumerated in time have estimates only, see ComponentResult.
+     * @param frontier Frontier to solve
+     * @param remainingBombs int bombs left to find, negative if the total is not known
+     * @param deadline long System.nanoTime() to give up at
+     * @return ComponentResult[] for each component, in order
+     */
+    ComponentResult[] enumerate(Frontier frontier, int remainingBombs, long deadline) {
+        return enumerate(frontier, remainingBombs, Long.MAX_VALUE, deadline);
+    }
+
+    /**
+     * Enumerates the components from the smallest to the largest, so a large
+     * component does not use up the time of the others. A component given up
+     * at the deadline is not remembered, it is tried again on the next move.
+     */
+    private ComponentResult[] enumerate(Frontier frontier, int remainingBombs, long maxNodes, long deadline) {
+        int components = frontier.getComponentCount();
+        int[] bySize = new int[components];
+        for (int c = 0; c < components; c++) {
+            int size = frontier.getComponentCells(c).length, i = c;
+            for (; i > 0 && frontier.getComponentCells(bySize[i - 1]).length > size; i--)
+                bySize[i] = bySize[i - 1];
+            bySize[i] = c;
+        }
+        HashMap<ComponentKey, ComponentResult> results = new HashMap<>();
+        ComponentResult[] componentResults = new ComponentResult[components];
+        for (int c : bySize) {
+            ComponentKey key = new ComponentKey(frontier, c, remainingBombs);
+            ComponentResult result = solved.get(key);
+            if (result == null) {
+                Enumeration enumeration = new Enumeration(frontier, c, remainingBombs, maxNodes, deadline);
+                if (enumeration.search(0, 0))
+                    result = enumeration.result();
+                else if (enumeration.isTimedOut())
+                    componentResults[c] = enumeration.estimate();
+                else
+                    result = enumeration.estimate();
+            }
+            if (result != null) {
+                results.put(key, result);
+                componentResults[c] = result;
+            }
+        }
+        solved = results;
+        return componentResults;
+    }
+
+    /**
+     * Calculates the probabilities from a result for each component of the frontier
+     * @param results ComponentResult[] for each component, in order
+     * @param remainingBombs int bombs left to find, negative if the total is not known
+     * @return MineProbabilities for the frontier
+     */
+    MineProbabilities combine(Frontier frontier, ComponentResult[] results, int remainingBombs) {
+        double[] probabilities = new double[frontier.getCellCount()];
+        int unconstrained = frontier.getUnconstrainedCount();
+        int bombsLeft = remainingBombs;
+        for (int c = 0; c < results.length; c++) {
+            ComponentResult result = results[c];
+            if (!result.exact) {
+                //An estimate only, the bombs it is expected to hold are taken from the total
+                int[] cells = frontier.getComponentCells(c);
+                double expected = 0;
+                for (int i = 0; i < cells.length; i++) {
+                    probabilities[cells[i]] = result.estimates[i];
+                    expected += result.estimates[i];
+                }
+                bombsLeft -= (int) Math.round(expected);
+            }
+        }
+        double unconstrainedProbability = combine(frontier, results, probabilities, unconstrained, Math.max(bombsLeft, 0), remainingBombs >= 0);
+        return new MineProbabilities(frontier, probabilities, unconstrainedProbability);
+    }
+
+    /**
+     * Weights the exact components together and writes the probabilities
+     * of their locations. A placement of bombs on the frontier using k bombs
+     * can be completed in C(unconstrained, bombsLeft - k) ways.
+     * @return double probability for a location not on the frontier
+     */
+    private double combine(Frontier frontier, ComponentResult[] results, double[] probabilities,
+                           int unconstrained, int bombsLeft, boolean knownTotal) {
+        double[] weights = completionWeights(frontier.getCellCount(), unconstrained, bombsLeft, knownTotal);
+        double[] all = {1};
+        for (ComponentResult result : results)
+            if (result.exact)
+                all = convolve(all, result.counts);
+        for (int c = 0; c < results.length; c++) {
+            ComponentResult result = results[c];
+            if (!result.exact)
+                continue;
+            double[] others = {1};
+            for (int o = 0; o < results.length; o++)
+                if (o != c && results[o].exact)
+                    others = convolve(others, results[o].counts);
+            //weight of the component using k bombs, summed over all placements of the other components
+            double[] componentWeights = new double[result.counts.length];
+            double total = 0;
+            for (int k = 0; k < result.counts.length; k++) {
+                double weight = 0;
+                for (int j = 0; j < others.length; j++)
+                    weight += others[j] * weight(weights, k + j);
+                componentWeights[k] = weight;
+                total += result.counts[k] * weight;
+            }
+            int[] cells = frontier.getComponentCells(c);
+            for (int i = 0; i < cells.length; i++) {
+                double bombs = 0;
+                for (int k = 0; k < result.counts.length; k++)
+                    if (result.cellBombs[k] != null)
+                        bombs += result.cellBombs[k][i] * componentWeights[k];
+                probabilities[cells[i]] = total > 0 ? bombs / total : 0.5;
+            }
+        }
+        if (unconstrained == 0)
+            return 1;
+        if (!knownTotal)
+            return 0.5;
+        double total = 0, bombs = 0;
+        for (int k = 0; k < all.length; k++) {
+            double weight = all[k] * weight(weights, k);
+            total += weight;
+            if (bombsLeft - k > 0)
+                bombs += weight * (bombsLeft - k) / unconstrained;
+        }
+        return total > 0 ? bombs / total : 0.5;
+    }
+
+    private static double weight(double[] weights, int bombs) {
+        return bombs < weights.length ? weights[bombs] : 0;
+    }
+
+    /**
+     * The number of ways to place the rest of the bombs outside the frontier, for each
+     * number of bombs on the frontier. Calculated with logarithms and scaled so the
+     * largest weight is 1, the numbers are far too large for a double otherwise.
+     * Without a known total every placement weighs the same, up to a bomb on
+     * every location of the frontier.
+     */
+    private double[] completionWeights(int frontierCells, int unconstrained, int bombsLeft, boolean knownTotal) {
+        double[] weights = new double[(knownTotal ? bombsLeft : frontierCells) + 1];
+        if (!knownTotal) {
+            Arrays.fill(weights, 1);
+            return weights;
+        }
+        ensureLogFactorials(unconstrained);
+        double max = Double.NEGATIVE_INFINITY;
+        for (int k = 0; k <= bombsLeft; k++) {
+            int rest = bombsLeft - k;
+            weights[k] = rest > unconstrained ? Double.NEGATIVE_INFINITY
+                    : logFactorials[unconstrained] - logFactorials[rest] - logFactorials[unconstrained - rest];
+            max = Math.max(max, weights[k]);
+        }
+        for (int k = 0; k <= bombsLeft; k++)
+            weights[k] = Math.exp(weights[k] - max);
+        return weights;
+    }
+
+    private void ensureLogFactorials(int n) {
+        if (n < logFactorials.length)
+            return;
+        int from = logFactorials.length;
+        logFactorials = Arrays.copyOf(logFactorials, n + 1);
+        for (int i = from; i <= n; i++)
+            logFactorials[i] = logFactorials[i - 1] + Math.log(i);
+    }
+
+    private static double[] convolve(double[] a, double[] b) {
+        double[] result = new double[a.length + b.length - 1];
+        for (int i = 0; i < a.length; i++)
+            for (int j = 0; j < b.length; j++)
+                result[i + j] += a[i] * b[j];
+        return result;
+    }
+
+    /**
+     * Backtracking search over the placements of bombs in one component.
+     * The locations are visited breadth first through their constraints,
+     * so a constraint is usually completed soon after it is started and
+     * a dead end is found early. The same search tree can be sampled
+     * instead of searched, see sample().
+     */
+    static class Enumeration {
+        private final int[] cells;
+        //index in the component of the location visited at each position
+        private final int[] order;
+        //constraints of the location at each position, numbered within the component
+        private final int[][] cellConstraints;
+        private final int[] targets;
+        private final int[] bombs;
+        private final int[] open;
+        //positions of the bombs placed so far, in the order they were placed
+        private final int[] placedBombs;
+        private final int maxBombs;
+        //the population of sample(): values, bombs per constraint, bombs placed and weight of each placement
+        private byte[][] values;
+        private byte[][] nextValues;
+        private int[][] particleBombs;
+        private int[][] nextParticleBombs;
+        private int[] particlePlaced;
+        private int[] nextParticlePlaced;
+        private double[] weights;
+        private final double[] counts;
+        //rows are created for the numbers of bombs that are found
+        private final double[][] cellBombs;
+        private final long maxNodes;
+        //System.nanoTime() to give up the search at
+        private final long deadline;
+        private long nodes;
+        private boolean timedOut;
+        //counts and cellBombs hold the sampled weights divided by e^logScale
+        private double logScale = Double.NEGATIVE_INFINITY;
+
+        Enumeration(Frontier frontier, int component, int remainingBombs, long maxNodes) {
+            this(frontier, component, remainingBombs, maxNodes, Long.MAX_VALUE);
+        }
+
+        Enumeration(Frontier frontier, int component, int remainingBombs, long maxNodes, long deadline) {
+            this.maxNodes = maxNodes;
+            this.deadline = deadline;
+            cells = frontier.getComponentCells(component);
+            int[] constraints = frontier.getComponentConstraints(component);
+            int[] local = new int[frontier.getConstraintCount()];
+            targets = new int[constraints.length];
+            bombs = new int[constraints.length];
+            open = new int[constraints.length];
+            for (int i = 0; i < constraints.length; i++) {
+                local[constraints[i]] = i;
+                targets[i] = frontier.getTarget(constraints[i]);
+                open[i] = frontier.getConstraintCells(constraints[i]).length;
+            }
+            order = visitOrder(frontier);
+            cellConstraints = new int[cells.length][];
+            for (int i = 0; i < cells.length; i++) {
+                int[] links = frontier.getCellConstraints(cells[order[i]]);
+                cellConstraints[i] = new int[links.length];
+                for (int j = 0; j < links.length; j++)
+                    cellConstraints[i][j] = local[links[j]];
+            }
+            placedBombs = new int[cells.length];
+            maxBombs = remainingBombs < 0 ? cells.length : Math.min(cells.length, remainingBombs);
+            counts = new double[cells.length + 1];
+            cellBombs = new double[cells.length + 1][];
+        }
+
+        /**
+         * Orders the locations breadth first, starting with the first location of the
+         * component and adding all locations of a constraint when it is first reached.
+         * @return int[] index in the component of the location at each position
+         */
+        private int[] visitOrder(Frontier frontier) {
+            int[] componentIndex = new int[frontier.getCellCount()];
+            for (int i = 0; i < cells.length; i++)
+                componentIndex[cells[i]] = i;
+            boolean[] added = new boolean[cells.length];
+            boolean[] reached = new boolean[frontier.getConstraintCount()];
+            int[] visit = new int[cells.length];
+            int size = 1;
+            added[0] = true;
+            for (int position = 0; position < size; position++) {
+                for (int constraint : frontier.getCellConstraints(cells[visit[position]])) {
+                    if (reached[constraint])
+                        continue;
+                    reached[constraint] = true;
+                    for (int cell : frontier.getConstraintCells(constraint)) {
+                        int index = componentIndex[cell];
+                        if (!added[index]) {
+                            added[index] = true;
+                            visit[size++] = index;
+                        }
+                    }
+                }
+            }
+            return visit;
+        }
+
+        /**
+         * @return boolean false if the search was given up
+         */
+        boolean search(int position, int placed) {
+            if (++nodes > maxNodes)
+                return false;
+            if ((nodes & DEADLINE_CHECK_MASK) == 0 && System.nanoTime() > deadline) {
+                timedOut = true;
+                return false;
+            }
+            if (position == cells.length) {
+                count(placed, 1);
+                return true;
+            }
+            for (int value = 0; value <= 1; value++) {
+                if (value == 1 && placed == maxBombs)
+                    break;
+                if (assign(position, value)) {
+                    placedBombs[placed] = position;
+                    if (!search(position + 1, placed + value))
+                        return false;
+                }
+                unassign(position, value);
+            }
+            return true;
+        }
+
+        /**
+         * @return boolean true if the search was given up at the deadline
+         */
+        boolean isTimedOut() {
+            return timedOut;
+        }
+
+        /**
+         * Places the value and checks that every constraint of the location can still be met
+         */
+        private boolean assign(int position, int value) {
+            boolean possible = true;
+            for (int c : cellConstraints[position]) {
+                open[c]--;
+                bombs[c] += value;
+                if (bombs[c] > targets[c] || bombs[c] + open[c] < targets[c])
+                    possible = false;
+            }
+            return possible;
+        }
+
+        private void unassign(int position, int value) {
+            for (int c : cellConstraints[position]) {
+                open[c]++;
+                bombs[c] -= value;
+            }
+        }
+
+        /**
+         * Counts the placement of the bombs in placedBombs
+         */
+        private void count(int placed, double weight) {
+            if (cellBombs[placed] == null)
+                cellBombs[placed] = new double[cells.length];
+            counts[placed] += weight;
+            for (int i = 0; i < placed; i++)
+                cellBombs[placed][order[placedBombs[i]]] += weight;
+        }
+
+        /**
+         * Walks a population of placements down the search tree together, one
+         * location at a time. Each placement takes a random value where both
+         * values still fit and its weight is doubled, so the weights add up to an
+         * unbiased estimate of the number of placements. A placement that ends in
+         * a dead end gets the weight 0. When the weight is held by too few
+         * placements, the population is drawn again from the heavy ones. That keeps
+         * the estimate unbiased and stops the population of a large component from
+         * dying out. The estimate is added to the counts, see sampled().
+         * @param random SplittableRandom to choose with
+         * @param particles int number of placements in the population
+         */
+        void sample(SplittableRandom random, int particles) {
+            if (weights == null || weights.length != particles) {
+                values = new byte[particles][cells.length];
+                nextValues = new byte[particles][cells.length];
+                particleBombs = new int[particles][targets.length];
+                nextParticleBombs = new int[particles][targets.length];
+                particlePlaced = new int[particles];
+                nextParticlePlaced = new int[particles];
+                weights = new double[particles];
+            }
+            Arrays.fill(weights, 1);
+            Arrays.fill(particlePlaced, 0);
+            for (int[] bombs : particleBombs)
+                Arrays.fill(bombs, 0);
+            double scale = 0;
+            int position = 0;
+            for (; position < cells.length; position++) {
+                int[] constraints = cellConstraints[position];
+                for (int c : constraints)
+                    open[c]--;
+                double total = 0, squares = 0, heaviest = 0;
+                for (int i = 0; i < particles; i++) {
+                    if (weights[i] == 0)
+                        continue;
+                    boolean bomb = particlePlaced[i] < maxBombs && fits(particleBombs[i], constraints, 1);
+                    boolean clear = fits(particleBombs[i], constraints, 0);
+                    if (!bomb && !clear) {
+                        weights[i] = 0;
+                        continue;
+                    }
+                    if (bomb && clear)
+                        weights[i] *= 2;
+                    int value = bomb && (!clear || random.nextBoolean()) ? 1 : 0;
+                    values[i][position] = (byte) value;
+                    if (value == 1) {
+                        for (int c : constraints)
+                            particleBombs[i][c]++;
+                        particlePlaced[i]++;
+                    }
+                    total += weights[i];
+                    squares += weights[i] * weights[i];
+                    heaviest = Math.max(heaviest, weights[i]);
+                }
+                if (total == 0)
+                    break;
+                //the weights are kept near 1, the factor is kept as a logarithm
+                for (int i = 0; i < particles; i++)
+                    weights[i] /= heaviest;
+                scale += Math.log(heaviest);
+                total /= heaviest;
+                squares /= heaviest * heaviest;
+                if (total * total < squares * particles / 2)
+                    scale += resample(random, particles, position, total);
+            }
+            for (int p = 0; p < position; p++)
+                for (int c : cellConstraints[p])
+                    open[c]++;
+            if (position < cells.length)
+                return;
+            if (scale > logScale)
+                rescale(scale);
+            double factor = Math.exp(scale - logScale);
+            for (int i = 0; i < particles; i++) {
+                if (weights[i] == 0)
+                    continue;
+                int k = particlePlaced[i];
+                if (cellBombs[k] == null)
+                    cellBombs[k] = new double[cells.length];
+                counts[k] += weights[i] * factor;
+                for (int p = 0; p < cells.length; p++)
+                    if (values[i][p] == 1)
+                        cellBombs[k][order[p]] += weights[i] * factor;
+            }
+        }
+
+        private boolean fits(int[] particleBombs, int[] constraints, int value) {
+            for (int c : constraints) {
+                int bombs = particleBombs[c] + value;
+                if (bombs > targets[c] || bombs + open[c] < targets[c])
+                    return false;
+            }
+            return true;
+        }
+
+        /**
+         * Draws a new population from the placements in proportion to their weights,
+         * with systematic resampling. Every new placement gets the weight 1.
+         * @return double logarithm of the weight each new placement stands for
+         */
+        private double resample(SplittableRandom random, int particles, int position, double total) {
+            double step = total / particles;
+            double next = random.nextDouble() * step, sum = 0;
+            int source = -1;
+            for (int i = 0; i < particles; i++) {
+                while (sum <= next && source < particles - 1)
+                    sum += weights[++source];
+                System.arraycopy(values[source], 0, nextValues[i], 0, position + 1);
+                System.arraycopy(particleBombs[source], 0, nextParticleBombs[i], 0, targets.length);
+                nextParticlePlaced[i] = particlePlaced[source];
+                next += step;
+            }
+            byte[][] swapValues = values;
+            values = nextValues;
+            nextValues = swapValues;
+            int[][] swapBombs = particleBombs;
+            particleBombs = nextParticleBombs;
+            nextParticleBombs = swapBombs;
+            int[] swapPlaced = particlePlaced;
+            particlePlaced = nextParticlePlaced;
+            nextParticlePlaced = swapPlaced;
+            Arrays.fill(weights, 1);
+            return Math.log(step);
+        }
+
+        private void rescale(double newLogScale) {
+            double factor = Math.exp(logScale - newLogScale);
+            logScale = newLogScale;
+            for (int k = 0; k < counts.length; k++) {
+                counts[k] *= factor;
+                if (cellBombs[k] != null)
+                    for (int i = 0; i < cells.length; i++)
+                        cellBombs[k][i] *= factor;
+            }
+        }
+
+        /**
+         * The sampled counts, only valid until the next sample
+         */
+        ComponentResult sampled() {
+            return new ComponentResult(counts, cellBombs, null);
+        }
+
+        /**
+         * Adds the samples of several streams of the same component together
+         * @param streams Enumeration[] that have sampled the component
+         * @return ComponentResult with the counts of all samples
+         */
+        static ComponentResult pool(Enumeration[] streams) {
+            double logScale = Double.NEGATIVE_INFINITY;
+            for (Enumeration stream : streams)
+                logScale = Math.max(logScale, stream.logScale);
+            int size = streams[0].counts.length;
+            double[] counts = new double[size];
+            double[][] cellBombs = new double[size][];
+            for (Enumeration stream : streams) {
+                if (stream.logScale == Double.NEGATIVE_INFINITY)
+                    continue;
+                double factor = Math.exp(stream.logScale - logScale);
+                for (int k = 0; k < size; k++) {
+                    counts[k] += stream.counts[k] * factor;
+                    if (stream.cellBombs[k] == null)
+                        continue;
+                    if (cellBombs[k] == null)
+                        cellBombs[k] = new double[size - 1];
+                    for (int i = 0; i < size - 1; i++)
+                        cellBombs[k][i] += stream.cellBombs[k][i] * factor;
+                }
+            }
+            return new ComponentResult(counts, cellBombs, null);
+        }
+
+        ComponentResult result() {
+            double scale = 0;
+            for (double count : counts)
+                scale = Math.max(scale, count);
+            if (scale > 0) {
+                for (int k = 0; k < counts.length; k++) {
+                    counts[k] /= scale;
+                    if (cellBombs[k] != null)
+                        for (int i = 0; i < cells.length; i++)
+                            cellBombs[k][i] /= scale;
+                }
+            }
+            return new ComponentResult(counts, cellBombs, null);
+        }
+
+        /**
+         * Used when the search is given up. Each location gets the highest share of
+         * bombs among its constraints.
+         */
+        ComponentResult estimate() {
+            int[] sizes = new int[targets.length];
+            for (int[] links : cellConstraints)
+                for (int c : links)
+                    sizes[c]++;
+            double[] estimates = new double[cells.length];
+            for (int i = 0; i < cells.length; i++)
+                for (int c : cellConstraints[i])
+                    estimates[order[i]] = Math.max(estimates[order[i]], (double) targets[c] / sizes[c]);
+            return new ComponentResult(null, null, estimates);
+        }
+    }
+
+    /**
+     * The result of enumerating a component. counts[k] is the number of placements
+     * using k bombs and cellBombs[k][i] how many of them has a bomb at location i,
+     * both scaled by the same factor, a row of cellBombs is null when counts[k] is 0.
+     * The counts of a sampled component are estimates, but are used the same way.
+     * A component that was given up has estimates only.
+     */
+    static class ComponentResult {
+        final double[] counts;
+        final double[][] cellBombs;
+        final double[] estimates;
+        final boolean exact;
+
+        ComponentResult(double[] counts, double[][] cellBombs, double[] estimates) {
+            this.counts = counts;
+            this.cellBombs = cellBombs;
+            this.estimates = estimates;
+            exact = estimates == null;
+        }
+    }
+
+    /**
+     * Identifies a component by the board locations of its constraints and locations,
+     * the number of bombs of each constraint and the remaining bombs. Two components
+     * with the same key always have the same result.
+     */
+    private static class ComponentKey {
+        private final int[] key;
+        private final int hash;
+
+        ComponentKey(Frontier frontier, int component, int remainingBombs) {
+            int[] cells = frontier.getComponentCells(component);
+            int[] constraints = frontier.getComponentConstraints(component);
+            key = new int[2 + cells.length + constraints.length * 2];
+            int i = 0;
+            key[i++] = remainingBombs;
+            key[i++] = cells.length;
+            for (int cell : cells)
+                key[i++] = frontier.getBoardIndex(cell);
+            for (int constraint : constraints) {
+                key[i++] = frontier.getConstraintSource(constraint);
+                key[i++] = frontier.getTarget(constraint);
+            }
+            hash = Arrays.hashCode(key);
+        }
+
+        @Override
+        public boolean equals(Object other) {
+            return other instanceof ComponentKey && Arrays.equals(key, ((ComponentKey) other).key);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+    }
+}
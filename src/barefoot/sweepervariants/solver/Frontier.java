@@ -0,0 +1,292 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.BoardView;
+
+import java.util.Arrays;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * The frontier of a board: the hidden locations next to a revealed number,
+ * and one constraint for each revealed number that has hidden neighbours.
+ * A constraint says how many of its hidden neighbours are bombs, flagged
+ * neighbours are counted as bombs. The frontier is split into components,
+ * locations in different components share no constraint and can be solved
+ * on their own.
+ * Frontier locations are numbered 0 to getCellCount() - 1, the location on
+ * the board is found with getRow() and getCol().
+ */
+public class Frontier {
+    private final int cols;
+    //frontier location of each board index, -1 if the location is not on the frontier
+    private final int[] frontierId;
+    //board index, row * cols + col, of each frontier location
+    private final int[] cells;
+    private final int cellCount;
+    //frontier locations and number of bombs of each constraint
+    private final int[][] constraintCells;
+    private final int[] targets;
+    //board index of the revealed number behind each constraint
+    private final int[] constraintSources;
+    private final int constraintCount;
+    //constraints of each frontier location
+    private final int[][] cellConstraints;
+    //frontier locations and constraints of each component
+    private final int[][] componentCells;
+    private final int[][] componentConstraints;
+    //hidden locations that are not on the frontier
+    private final int unconstrainedCount;
+    private final int flagCount;
+
+    /**
+     * Reads the frontier from a board
+     * @param board BoardView to read
+     * @return Frontier of the board
+     */
+    public static Frontier of(BoardView board) {
+        return new Frontier(board);
+    }
+
+    private Frontier(BoardView board) {
+        int rows = board.getRows();
+        cols = board.getCols();
+        frontierId = new int[rows * cols];
+        Arrays.fill(frontierId, -1);
+        int[] foundCells = new int[16];
+        int[][] foundConstraints = new int[16][];
+        int[] foundTargets = new int[16];
+        int[] foundSources = new int[16];
+        int cellsFound = 0, constraintsFound = 0, hidden = 0, flags = 0;
+        int[] neighbours = new int[8];
+        for (int row = 0; row < rows; row++) {
+            for (int col = 0; col < cols; col++) {
+                byte cell = board.getCell(row, col);
+                if (cell == CELL_HIDDEN)
+                    hidden++;
+                if (cell == CELL_FLAGGED)
+                    flags++;
+                if (cell < 1 || cell > 8)
+                    continue;
+                int hiddenNeighbours = 0, flaggedNeighbours = 0;
+                for (int k = row - 1; k <= row + 1; k++) {
+                    for (int l = col - 1; l <= col + 1; l++) {
+                        if (k < 0 || l < 0 || k >= rows || l >= cols)
+                            continue;
+                        byte neighbour = board.getCell(k, l);
+                        if (neighbour == CELL_HIDDEN)
+                            neighbours[hiddenNeighbours++] = k * cols + l;
+                        else if (neighbour == CELL_FLAGGED)
+                            flaggedNeighbours++;
+                    }
+                }
+                if (hiddenNeighbours == 0)
+                    continue;
+                int[] constraint = new int[hiddenNeighbours];
+                for (int i = 0; i < hiddenNeighbours; i++) {
+                    int index = neighbours[i];
+                    if (frontierId[index] < 0) {
+                        if (cellsFound == foundCells.length)
+                            foundCells = Arrays.copyOf(foundCells, cellsFound * 2);
+                        frontierId[index] = cellsFound;
+                        foundCells[cellsFound++] = index;
+                    }
+                    constraint[i] = frontierId[index];
+                }
+                if (constraintsFound == foundConstraints.length) {
+                    foundConstraints = Arrays.copyOf(foundConstraints, constraintsFound * 2);
+                    foundTargets = Arrays.copyOf(foundTargets, constraintsFound * 2);
+                    foundSources = Arrays.copyOf(foundSources, constraintsFound * 2);
+                }
+                foundConstraints[constraintsFound] = constraint;
+                foundTargets[constraintsFound] = cell - flaggedNeighbours;
+                foundSources[constraintsFound++] = row * cols + col;
+            }
+        }
+        cells = foundCells;
+        cellCount = cellsFound;
+        constraintCells = foundConstraints;
+        targets = foundTargets;
+        constraintSources = foundSources;
+        constraintCount = constraintsFound;
+        unconstrainedCount = hidden - cellsFound;
+        flagCount = flags;
+        cellConstraints = linkCellsToConstraints();
+        int[] component = findComponents();
+        int components = 0;
+        for (int id : component)
+            components = Math.max(components, id + 1);
+        componentCells = group(component, components, cellCount);
+        int[] constraintComponent = new int[constraintCount];
+        for (int c = 0; c < constraintCount; c++)
+            constraintComponent[c] = component[constraintCells[c][0]];
+        componentConstraints = group(constraintComponent, components, constraintCount);
+    }
+
+    private int[][] linkCellsToConstraints() {
+        int[] counts = new int[cellCount];
+        for (int c = 0; c < constraintCount; c++)
+            for (int cell : constraintCells[c])
+                counts[cell]++;
+        int[][] links = new int[cellCount][];
+        for (int i = 0; i < cellCount; i++)
+            links[i] = new int[counts[i]];
+        Arrays.fill(counts, 0);
+        for (int c = 0; c < constraintCount; c++)
+            for (int cell : constraintCells[c])
+                links[cell][counts[cell]++] = c;
+        return links;
+    }
+
+    /**
+     * Union-find over the frontier locations, two locations are joined
+     * when they share a constraint.
+     * @return int[] component number of each frontier location, 0 and up
+     */
+    private int[] findComponents() {
+        int[] parent = new int[cellCount];
+        for (int i = 0; i < cellCount; i++)
+            parent[i] = i;
+        for (int c = 0; c < constraintCount; c++) {
+            int first = find(parent, constraintCells[c][0]);
+            for (int cell : constraintCells[c]) {
+                int root = find(parent, cell);
+                if (root != first)
+                    parent[root] = first;
+            }
+        }
+        int[] component = new int[cellCount];
+        int[] rootComponent = new int[cellCount];
+        Arrays.fill(rootComponent, -1);
+        int components = 0;
+        for (int i = 0; i < cellCount; i++) {
+            int root = find(parent, i);
+            if (rootComponent[root] < 0)
+                rootComponent[root] = components++;
+            component[i] = rootComponent[root];
+        }
+        return component;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    private static int[][] group(int[] groupOf, int groups, int count) {
+        int[] sizes = new int[groups];
+        for (int i = 0; i < count; i++)
+            sizes[groupOf[i]]++;
+        int[][] grouped = new int[groups][];
+        for (int g = 0; g < groups; g++)
+            grouped[g] = new int[sizes[g]];
+        Arrays.fill(sizes, 0);
+        for (int i = 0; i < count; i++)
+            grouped[groupOf[i]][sizes[groupOf[i]]++] = i;
+        return grouped;
+    }
+
+    /**
+     * @return int number of hidden locations next to a revealed number
+     */
+    public int getCellCount() {
+        return cellCount;
+    }
+
+    /**
+     * @param row int row on the board
+     * @param col int column on the board
+     * @return int frontier location at the board location, -1 if it is not on the frontier
+     */
+    public int getCell(int row, int col) {
+        return frontierId[row * cols + col];
+    }
+
+    public int getRow(int cell) {
+        return cells[cell] / cols;
+    }
+
+    public int getCol(int cell) {
+        return cells[cell] % cols;
+    }
+
+    /**
+     * @param cell int frontier location
+     * @return int row * columns + column of the location on the board
+     */
+    public int getBoardIndex(int cell) {
+        return cells[cell];
+    }
+
+    public int getConstraintCount() {
+        return constraintCount;
+    }
+
+    /**
+     * @param constraint int number of the constraint
+     * @return int[] frontier locations of the constraint, do not modify
+     */
+    public int[] getConstraintCells(int constraint) {
+        return constraintCells[constraint];
+    }
+
+    /**
+     * @param constraint int number of the constraint
+     * @return int number of bombs among the locations of the constraint
+     */
+    public int getTarget(int constraint) {
+        return targets[constraint];
+    }
+
+    /**
+     * @param constraint int number of the constraint
+     * @return int row * columns + column of the revealed number behind the constraint
+     */
+    public int getConstraintSource(int constraint) {
+        return constraintSources[constraint];
+    }
+
+    /**
+     * @param cell int frontier location
+     * @return int[] constraints the location is part of, do not modify
+     */
+    public int[] getCellConstraints(int cell) {
+        return cellConstraints[cell];
+    }
+
+    public int getComponentCount() {
+        return componentCells.length;
+    }
+
+    /**
+     * @param component int number of the component
+     * @return int[] frontier locations of the component, do not modify
+     */
+    public int[] getComponentCells(int component) {
+        return componentCells[component];
+    }
+
+    /**
+     * @param component int number of the component
+     * @return int[] constraints of the component, do not modify
+     */
+    public int[] getComponentConstraints(int component) {
+        return componentConstraints[component];
+    }
+
+    /**
+     * @return int number of hidden locations that are not next to a revealed number
+     */
+    public int getUnconstrainedCount() {
+        return unconstrainedCount;
+    }
+
+    /**
+     * @return int number of flagged locations on the board
+     */
+    public int getFlagCount() {
+        return flagCount;
+    }
+}
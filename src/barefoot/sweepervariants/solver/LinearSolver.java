@@ -0,0 +1,374 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.ActionBatch;
+import barefoot.minesweeper.BoardChange;
+import barefoot.minesweeper.BoardView;
+
+import java.util.Arrays;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Deductions from the revealed numbers as a system of linear equations.
+ * Every number with hidden neighbours is an equation: the sum of its hidden
+ * neighbours, 1 for a bomb and 0 for a safe location, is the number minus its
+ * flagged neighbours. The equations are combined by Gaussian elimination, and
+ * a combined equation often proves locations that no single number does:
+ * <pre>
+ *   a + b + c = 2      minus      a + b = 1      gives      c = 1
+ *   a + b + c = 1      minus      c + d = 1      gives      a + b - d = 0
+ * </pre>
+ * An equation is a bomb or safe proof when it is at one of its bounds: with
+ * the sum of the locations with +1 equal to how many they are, or with the sum
+ * of the locations with -1 equal to how many they are, all other locations
+ * are settled as well.
+ * An equation is kept as two bitsets over the whole board, the locations with
+ * +1 and the locations with -1, so combining two equations is a few word
+ * operations. Two equations are not combined when a location would get 2 or -2,
+ * the system is reduced as far as the bitsets allow. All equations are still
+ * true, so every deduction is sound, but some deductions can be missed.
+ * The system is kept up to date one location at a time with update(), known
+ * locations are taken out of the equations and new numbers are added, so the
+ * system is never built from scratch during a game. Flags are trusted to be bombs.
+ */
+public class LinearSolver {
+    private BoardView board;
+    private int cols;
+    private int words;
+    //locations that are revealed or flagged, they are no longer in any equation
+    private long[] known;
+    //locations flagged when they were taken out of the equations
+    private long[] flagged;
+    //the equations, locations with +1 and -1 and the sum
+    private long[][] plus = new long[16][];
+    private long[][] minus = new long[16][];
+    private int[] sums = new int[16];
+    //location each equation was reduced on, no other equation should have it
+    private int[] pivots = new int[16];
+    private int count;
+    //equation each location is the pivot of, -1 if none
+    private int[] pivotOf;
+    //scratch for the equation being combined
+    private long[] scratchPlus;
+    private long[] scratchMinus;
+    //equations left without locations by insert(), highest first
+    private int[] emptied = new int[16];
+    //locations already added by findActions()
+    private long[] found;
+
+    /**
+     * Brings the system up to date after a location changed. On a new board,
+     * or when a flag is removed, the system is built again from the board.
+     * @param board BoardView of the game
+     * @param row int row of the changed location
+     * @param col int column of the changed location
+     */
+    public void update(BoardView board, int row, int col) {
+        if (board != this.board) {
+            reset(board);
+            return;
+        }
+        int index = row * cols + col;
+        byte cell = board.getCell(row, col);
+        if (isSet(known, index)) {
+            //a flag removed, its value was taken out of the equations
+            if (cell == CELL_HIDDEN || cell != CELL_FLAGGED && isSet(flagged, index))
+                reset(board);
+            return;
+        }
+        if (cell == CELL_HIDDEN || cell == CELL_BOMB)
+            return;
+        set(known, index);
+        if (cell == CELL_FLAGGED) {
+            set(flagged, index);
+            substitute(index, 1);
+            return;
+        }
+        substitute(index, 0);
+        if (cell >= 1 && cell <= 8)
+            addNumber(row, col, cell);
+    }
+
+    /**
+     * Brings the system up to date with the locations changed by the last action
+     * @param board BoardView of the game
+     * @param change BoardChange from GameSession.getLastChange()
+     */
+    public void update(BoardView board, BoardChange change) {
+        for (int i = 0; i < change.getCount(); i++)
+            update(board, change.getRow(i), change.getCol(i));
+    }
+
+    /**
+     * Builds the system from all revealed numbers of a board
+     * @param board BoardView of the game
+     */
+    public void reset(BoardView board) {
+        this.board = board;
+        cols = board.getCols();
+        int locations = board.getRows() * cols;
+        if (pivotOf == null || pivotOf.length != locations) {
+            words = (locations + 63) >>> 6;
+            known = new long[words];
+            flagged = new long[words];
+            scratchPlus = new long[words];
+            scratchMinus = new long[words];
+            found = new long[words];
+            pivotOf = new int[locations];
+        } else {
+            Arrays.fill(known, 0);
+            Arrays.fill(flagged, 0);
+        }
+        Arrays.fill(pivotOf, -1);
+        count = 0;
+        for (int index = 0; index < locations; index++) {
+            byte cell = board.getCell(index / cols, index % cols);
+            if (cell == CELL_FLAGGED)
+                set(flagged, index);
+            if (cell != CELL_HIDDEN && cell != CELL_BOMB)
+                set(known, index);
+        }
+        for (int index = 0; index < locations; index++) {
+            byte cell = board.getCell(index / cols, index % cols);
+            if (cell >= 1 && cell <= 8)
+                addNumber(index / cols, index % cols, cell);
+        }
+    }
+
+    /**
+     * Adds a sweep for every location proven safe and a flag for every location
+     * proven a bomb, each location once. The system is built from the board
+     * if it is not the board of the last update.
+     * @param board BoardView of the game
+     * @param batch ActionBatch the actions are added to, the sweeps first
+     * @return int number of actions added
+     */
+    public int findActions(BoardView board, ActionBatch batch) {
+        if (board != this.board)
+            reset(board);
+        Arrays.fill(found, 0);
+        int added = 0;
+        for (int bombs = 0; bombs <= 1; bombs++) {
+            for (int e = 0; e < count; e++) {
+                int plusCount = cardinality(plus[e]), minusCount = cardinality(minus[e]);
+                if (sums[e] == plusCount) {
+                    //every +1 location is a bomb and every -1 location is safe
+                    added += add(batch, bombs == 1 ? plus[e] : minus[e], bombs == 1);
+                } else if (sums[e] == -minusCount) {
+                    added += add(batch, bombs == 1 ? minus[e] : plus[e], bombs == 1);
+                }
+            }
+        }
+        return added;
+    }
+
+    private int add(ActionBatch batch, long[] locations, boolean flag) {
+        int added = 0;
+        for (int w = 0; w < words; w++) {
+            long bits = locations[w] & ~found[w];
+            found[w] |= bits;
+            while (bits != 0) {
+                int index = w << 6 | Long.numberOfTrailingZeros(bits);
+                bits &= bits - 1;
+                if (flag)
+                    batch.flag(index / cols, index % cols);
+                else
+                    batch.sweep(index / cols, index % cols);
+                added++;
+            }
+        }
+        return added;
+    }
+
+    /**
+     * @return int number of equations in the system
+     */
+    public int getEquationCount() {
+        return count;
+    }
+
+    /**
+     * Adds the equation of a revealed number, its hidden neighbours sum to the
+     * number minus its flagged neighbours
+     */
+    private void addNumber(int row, int col, int value) {
+        Arrays.fill(scratchPlus, 0);
+        Arrays.fill(scratchMinus, 0);
+        int sum = value, hidden = 0;
+        for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, board.getRows() - 1); r++) {
+            for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                int index = r * cols + c;
+                if (isSet(flagged, index))
+                    sum--;
+                else if (!isSet(known, index)) {
+                    set(scratchPlus, index);
+                    hidden++;
+                }
+            }
+        }
+        if (hidden > 0)
+            insert(scratchPlus, scratchMinus, sum);
+    }
+
+    /**
+     * Reduces an equation with the pivots of the system, adds it with a pivot of
+     * its own and takes the new pivot out of the other equations
+     */
+    private void insert(long[] equationPlus, long[] equationMinus, int sum) {
+        for (int e = 0; e < count; e++) {
+            int location = pivots[e];
+            if (isSet(equationPlus, location) || isSet(equationMinus, location))
+                sum = eliminate(equationPlus, equationMinus, sum, e, location);
+        }
+        int pivot = firstLocation(equationPlus, equationMinus);
+        if (pivot < 0)
+            return;
+        if (count == sums.length)
+            grow();
+        int e = count++;
+        //the arrays of removed equations are kept for reuse
+        if (plus[e] == null || plus[e].length != words) {
+            plus[e] = new long[words];
+            minus[e] = new long[words];
+        }
+        System.arraycopy(equationPlus, 0, plus[e], 0, words);
+        System.arraycopy(equationMinus, 0, minus[e], 0, words);
+        sums[e] = sum;
+        pivots[e] = pivot;
+        pivotOf[pivot] = e;
+        int emptied = 0;
+        for (int other = e - 1; other >= 0; other--) {
+            if (isSet(plus[other], pivot) || isSet(minus[other], pivot)) {
+                sums[other] = eliminate(plus[other], minus[other], sums[other], e, pivot);
+                if (firstLocation(plus[other], minus[other]) < 0)
+                    this.emptied[emptied++] = other;
+            }
+        }
+        //highest first, a removal moves the last equation
+        for (int i = 0; i < emptied; i++)
+            remove(this.emptied[i]);
+    }
+
+    /**
+     * Takes a location out of an equation by adding or subtracting equation e,
+     * unless a location would get the factor 2 or -2
+     * @return int the sum of the equation after
+     */
+    private int eliminate(long[] equationPlus, long[] equationMinus, int sum, int e, int location) {
+        //add e when the location has opposite signs in the two equations, else subtract it
+        boolean add = isSet(equationPlus, location) != isSet(plus[e], location);
+        long[] addPlus = add ? plus[e] : minus[e];
+        long[] addMinus = add ? minus[e] : plus[e];
+        for (int w = 0; w < words; w++) {
+            if ((equationPlus[w] & addPlus[w]) != 0 || (equationMinus[w] & addMinus[w]) != 0)
+                return sum;
+        }
+        for (int w = 0; w < words; w++) {
+            long p = equationPlus[w], m = equationMinus[w];
+            equationPlus[w] = p & ~addMinus[w] | addPlus[w] & ~m;
+            equationMinus[w] = m & ~addPlus[w] | addMinus[w] & ~p;
+        }
+        return add ? sum + sums[e] : sum - sums[e];
+    }
+
+    /**
+     * Takes a known location out of every equation. Equations left without
+     * locations are removed, they are 0 = 0. An equation that loses its pivot
+     * is reduced and added again.
+     */
+    private void substitute(int index, int value) {
+        int pivotEquation = pivotOf[index];
+        if (pivotEquation >= 0) {
+            System.arraycopy(plus[pivotEquation], 0, scratchPlus, 0, words);
+            System.arraycopy(minus[pivotEquation], 0, scratchMinus, 0, words);
+            int sum = sums[pivotEquation];
+            remove(pivotEquation);
+            int without = takeOut(scratchPlus, scratchMinus, sum, index, value);
+            if (without != Integer.MIN_VALUE)
+                sum = without;
+            substitute(index, value);
+            insert(scratchPlus, scratchMinus, sum);
+            return;
+        }
+        for (int e = count - 1; e >= 0; e--) {
+            int sum = takeOut(plus[e], minus[e], sums[e], index, value);
+            if (sum == Integer.MIN_VALUE)
+                continue;
+            sums[e] = sum;
+            if (firstLocation(plus[e], minus[e]) < 0)
+                remove(e);
+        }
+    }
+
+    /**
+     * @return int the sum of the equation without the location, Integer.MIN_VALUE if it was not in it
+     */
+    private static int takeOut(long[] equationPlus, long[] equationMinus, int sum, int index, int value) {
+        if (isSet(equationPlus, index)) {
+            clear(equationPlus, index);
+            return sum - value;
+        }
+        if (isSet(equationMinus, index)) {
+            clear(equationMinus, index);
+            return sum + value;
+        }
+        return Integer.MIN_VALUE;
+    }
+
+    /**
+     * Removes an equation, its arrays are moved behind the last equation for reuse
+     */
+    private void remove(int e) {
+        if (pivotOf[pivots[e]] == e)
+            pivotOf[pivots[e]] = -1;
+        int last = --count;
+        if (e != last) {
+            long[] removedPlus = plus[e], removedMinus = minus[e];
+            plus[e] = plus[last];
+            minus[e] = minus[last];
+            sums[e] = sums[last];
+            pivots[e] = pivots[last];
+            if (pivotOf[pivots[e]] == last)
+                pivotOf[pivots[e]] = e;
+            plus[last] = removedPlus;
+            minus[last] = removedMinus;
+        }
+    }
+
+    private void grow() {
+        int size = sums.length * 2;
+        plus = Arrays.copyOf(plus, size);
+        minus = Arrays.copyOf(minus, size);
+        sums = Arrays.copyOf(sums, size);
+        pivots = Arrays.copyOf(pivots, size);
+        emptied = new int[size];
+    }
+
+    private int firstLocation(long[] equationPlus, long[] equationMinus) {
+        for (int w = 0; w < words; w++) {
+            long bits = equationPlus[w] | equationMinus[w];
+            if (bits != 0)
+                return w << 6 | Long.numberOfTrailingZeros(bits);
+        }
+        return -1;
+    }
+
+    private int cardinality(long[] bits) {
+        int cardinality = 0;
+        for (int w = 0; w < words; w++)
+            cardinality += Long.bitCount(bits[w]);
+        return cardinality;
+    }
+
+    private static boolean isSet(long[] bits, int index) {
+        return (bits[index >>> 6] & 1L << index) != 0;
+    }
+
+    private static void set(long[] bits, int index) {
+        bits[index >>> 6] |= 1L << index;
+    }
+
+    private static void clear(long[] bits, int index) {
+        bits[index >>> 6] &= ~(1L << index);
+    }
+}
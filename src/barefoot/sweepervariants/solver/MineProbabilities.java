@@ -0,0 +1,134 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.BoardView;
+
+import java.util.SplittableRandom;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * The probability of a bomb for each location on a Frontier, and for
+ * the hidden locations that are not on the frontier.
+ * Probabilities estimated by sampling have a 95% confidence interval,
+ * exact probabilities have an interval of zero width.
+ */
+public class MineProbabilities {
+    private final Frontier frontier;
+    private final double[] probabilities;
+    private final double unconstrained;
+    //Half the width of the confidence interval of each probability, null when exact
+    private final double[] margins;
+    private final double unconstrainedMargin;
+
+    /**
+     * @param frontier Frontier the probabilities are for
+     * @param probabilities double[] probability of each frontier location
+     * @param unconstrained double probability for each hidden location not on the frontier
+     */
+    public MineProbabilities(Frontier frontier, double[] probabilities, double unconstrained) {
+        this(frontier, probabilities, unconstrained, null, 0);
+    }
+
+    /**
+     * Probabilities that are estimated, each within plus or minus its margin
+     * @param frontier Frontier the probabilities are for
+     * @param probabilities double[] probability of each frontier location
+     * @param unconstrained double probability for each hidden location not on the frontier
+     * @param margins double[] half the width of the confidence interval of each frontier location
+     * @param unconstrainedMargin double half the width of the confidence interval of unconstrained
+     */
+    public MineProbabilities(Frontier frontier, double[] probabilities, double unconstrained,
+                             double[] margins, double unconstrainedMargin) {
+        this.frontier = frontier;
+        this.probabilities = probabilities;
+        this.unconstrained = unconstrained;
+        this.margins = margins;
+        this.unconstrainedMargin = unconstrainedMargin;
+    }
+
+    public Frontier getFrontier() {
+        return frontier;
+    }
+
+    /**
+     * @param cell int frontier location
+     * @return double probability of a bomb at the location, 0 - 1
+     */
+    public double getProbability(int cell) {
+        return probabilities[cell];
+    }
+
+    /**
+     * @param cell int frontier location
+     * @return double lowest probability of a bomb within the confidence interval
+     */
+    public double getLowerBound(int cell) {
+        return margins == null ? probabilities[cell] : Math.max(probabilities[cell] - margins[cell], 0);
+    }
+
+    /**
+     * @param cell int frontier location
+     * @return double highest probability of a bomb within the confidence interval
+     */
+    public double getUpperBound(int cell) {
+        return margins == null ? probabilities[cell] : Math.min(probabilities[cell] + margins[cell], 1);
+    }
+
+    /**
+     * @return double probability of a bomb at a hidden location that is not on the frontier
+     */
+    public double getUnconstrainedProbability() {
+        return unconstrained;
+    }
+
+    /**
+     * @return double half the width of the confidence interval of getUnconstrainedProbability()
+     */
+    public double getUnconstrainedMargin() {
+        return unconstrainedMargin;
+    }
+
+    /**
+     * @return boolean true if the probabilities are exact
+     */
+    public boolean isExact() {
+        return margins == null;
+    }
+
+    /**
+     * @return int the frontier location with the lowest probability, -1 if the frontier is empty
+     */
+    public int getSafestCell() {
+        int safest = -1;
+        for (int i = 0; i < probabilities.length; i++) {
+            if (safest < 0 || probabilities[i] < probabilities[safest])
+                safest = i;
+        }
+        return safest;
+    }
+
+    /**
+     * Chooses the location to guess: the frontier location with the lowest
+     * probability of a bomb, or a random hidden location away from the frontier
+     * if those are safer
+     * @param board BoardView the frontier was read from
+     * @param random SplittableRandom to choose among the locations away from the frontier
+     * @return int row * columns + column of the location, -1 if no location is hidden
+     */
+    public int getSafestGuess(BoardView board, SplittableRandom random) {
+        int safest = getSafestCell();
+        int unconstrainedCount = frontier.getUnconstrainedCount();
+        if (safest >= 0 && (unconstrainedCount == 0 || probabilities[safest] <= unconstrained))
+            return frontier.getBoardIndex(safest);
+        if (unconstrainedCount == 0)
+            return -1;
+        int skip = random.nextInt(unconstrainedCount);
+        int cols = board.getCols();
+        for (int index = 0; index < board.getRows() * cols; index++) {
+            int row = index / cols, col = index % cols;
+            if (board.getCell(row, col) == CELL_HIDDEN && frontier.getCell(row, col) < 0 && skip-- == 0)
+                return index;
+        }
+        return -1;
+    }
+}
@@ -0,0 +1,188 @@
+package barefoot.sweepervariants.solver;
+
+import java.util.SplittableRandom;
+import java.util.stream.IntStream;
+
+/**
+ * Estimates the probability of a bomb for every hidden location, also when
+ * the frontier has components far too large to enumerate.
+ * Each component is first enumerated by the ConstraintSolver with a small
+ * search budget, a component that fits is exact. The others are sampled:
+ * populations of placements walk down the search tree of the component at
+ * random, each counted with one over the chance of drawing it, and the
+ * placements that reach a dead end are replaced by copies of the others.
+ * The components are then weighted together with the number of bombs left,
+ * the same way as the exact solver does.
+ * The samples are drawn in independent streams. The streams are pooled for
+ * the probabilities, and the spread between them gives a 95% confidence
+ * interval for each location, see MineProbabilities.getLowerBound().
+ * Sampling stops when every stream has drawn its samples or when the time
+ * budget is used up. The same random numbers give the same estimate, as long
+ * as the time budget does not cut the sampling short. An estimator made with
+ * withoutTimeLimit() always draws every sample, for games that must play the
+ * same every time they are played with the same seed.
+ */
+public class MonteCarloEstimator {
+    //Independent streams of samples, their spread gives the confidence interval
+    private static final int STREAMS = 8;
+    //Student's t for a 95% interval from STREAMS estimates
+    private static final double T_95 = 2.365;
+    //Placements sampled together for each component between looks at the clock
+    private static final int SAMPLES_PER_ROUND = 64;
+    //A component is sampled when its search visits more placements than this
+    private static final long EXACT_SEARCH_NODES = 20_000;
+    //Budget of an estimator that does not look at the clock
+    private static final long NO_TIME_LIMIT = Long.MAX_VALUE;
+
+    private final long budgetNanos;
+    private final int samplesPerStream;
+    private final boolean parallel;
+    private final ConstraintSolver solver = new ConstraintSolver();
+
+    /**
+     * An estimator drawing up to 1024 samples per stream of each component,
+     * within 10 milliseconds, on the calling thread
+     */
+    public MonteCarloEstimator() {
+        this(10_000_000, 1024, false);
+    }
+
+    /**
+     * @param budgetNanos long time to sample for, in nanoseconds
+     * @param samplesPerStream int samples of each component to draw in each of the streams
+     * @param parallel boolean true to draw the streams in parallel on all cores. Leave it
+     *                 false when games are already played in parallel, as by the TournamentRunner.
+     */
+    public MonteCarloEstimator(long budgetNanos, int samplesPerStream, boolean parallel) {
+        this.budgetNanos = budgetNanos;
+        this.samplesPerStream = samplesPerStream;
+        this.parallel = parallel;
+    }
+
+    /**
+     * An estimator that always draws all its samples, however long it takes,
+     * on the calling thread. Its estimate only depends on the random numbers.
+     * @param samplesPerStream int samples of each component to draw in each of the streams
+     * @return MonteCarloEstimator without a time budget
+     */
+    public static MonteCarloEstimator withoutTimeLimit(int samplesPerStream) {
+        return new MonteCarloEstimator(NO_TIME_LIMIT, samplesPerStream, false);
+    }
+
+    /**
+     * Estimates the probabilities for the frontier
+     * @param frontier Frontier to estimate
+     * @param remainingBombs int bombs left to find, the total number of bombs
+     *                       minus the flags. Negative if the total is not known.
+     * @param random SplittableRandom for the samples, each stream gets a split of it
+     * @return MineProbabilities for the frontier, exact if no component had to be sampled
+     */
+    public MineProbabilities estimate(Frontier frontier, int remainingBombs, SplittableRandom random) {
+        int components = frontier.getComponentCount();
+        ConstraintSolver.ComponentResult[] results = new ConstraintSolver.ComponentResult[components];
+        for (int c = 0; c < components; c++) {
+            ConstraintSolver.Enumeration enumeration = new ConstraintSolver.Enumeration(frontier, c, remainingBombs, EXACT_SEARCH_NODES);
+            results[c] = enumeration.search(0, 0) ? enumeration.result() : enumeration.estimate();
+        }
+        long deadline = budgetNanos == NO_TIME_LIMIT ? Long.MAX_VALUE : System.nanoTime() + budgetNanos;
+        return estimate(frontier, remainingBombs, random, results, deadline);
+    }
+
+    /**
+     * Samples the components that are not exact, and weights them together with the others
+     * @param frontier Frontier to estimate
+     * @param remainingBombs int bombs left to find, negative if the total is not known
+     * @param random SplittableRandom for the samples, each stream gets a split of it
+     * @param exact ComponentResult[] for each component, those with estimates only are sampled
+     * @param deadline long System.nanoTime() to stop sampling at, at least one round is drawn.
+     *                 Long.MAX_VALUE to draw every sample.
+     * @return MineProbabilities for the frontier, exact if no component had to be sampled
+     */
+    MineProbabilities estimate(Frontier frontier, int remainingBombs, SplittableRandom random,
+                               ConstraintSolver.ComponentResult[] exact, long deadline) {
+        int components = exact.length;
+        ConstraintSolver.ComponentResult[] results = exact.clone();
+        int[] sampled = new int[components];
+        int sampledCount = 0;
+        for (int c = 0; c < components; c++)
+            if (!results[c].exact)
+                sampled[sampledCount++] = c;
+        if (sampledCount == 0)
+            return solver.combine(frontier, results, remainingBombs);
+
+        ConstraintSolver.Enumeration[][] streams = new ConstraintSolver.Enumeration[STREAMS][sampledCount];
+        SplittableRandom[] randoms = new SplittableRandom[STREAMS];
+        for (int s = 0; s < STREAMS; s++)
+            randoms[s] = random.split();
+        int toSample = sampledCount;
+        long started = System.nanoTime();
+        IntStream range = IntStream.range(0, STREAMS);
+        (parallel ? range.parallel() : range).forEach(s -> {
+            for (int i = 0; i < toSample; i++)
+                streams[s][i] = new ConstraintSolver.Enumeration(frontier, sampled[i], remainingBombs, 0);
+            //streams drawn one after the other each get their share of the time
+            draw(streams[s], randoms[s], parallel || deadline == Long.MAX_VALUE ? deadline
+                    : started + (deadline - started) * (s + 1) / STREAMS);
+        });
+
+        //The estimate of each stream on its own, for the spread
+        int cellCount = frontier.getCellCount();
+        double[][] streamProbabilities = new double[STREAMS][cellCount];
+        double[] streamUnconstrained = new double[STREAMS];
+        for (int s = 0; s < STREAMS; s++) {
+            for (int i = 0; i < sampledCount; i++)
+                results[sampled[i]] = streams[s][i].sampled();
+            MineProbabilities estimate = solver.combine(frontier, results, remainingBombs);
+            for (int cell = 0; cell < cellCount; cell++)
+                streamProbabilities[s][cell] = estimate.getProbability(cell);
+            streamUnconstrained[s] = estimate.getUnconstrainedProbability();
+        }
+
+        ConstraintSolver.Enumeration[] column = new ConstraintSolver.Enumeration[STREAMS];
+        for (int i = 0; i < sampledCount; i++) {
+            for (int s = 0; s < STREAMS; s++)
+                column[s] = streams[s][i];
+            results[sampled[i]] = ConstraintSolver.Enumeration.pool(column);
+        }
+        MineProbabilities pooled = solver.combine(frontier, results, remainingBombs);
+        double[] probabilities = new double[cellCount];
+        double[] margins = new double[cellCount];
+        double[] spread = new double[STREAMS];
+        for (int cell = 0; cell < cellCount; cell++) {
+            probabilities[cell] = pooled.getProbability(cell);
+            for (int s = 0; s < STREAMS; s++)
+                spread[s] = streamProbabilities[s][cell];
+            margins[cell] = margin(spread);
+        }
+        return new MineProbabilities(frontier, probabilities, pooled.getUnconstrainedProbability(),
+                margins, margin(streamUnconstrained));
+    }
+
+    /**
+     * Samples every component of a stream in rounds, until the samples are
+     * drawn or the time is up. At least one round is always drawn.
+     */
+    private void draw(ConstraintSolver.Enumeration[] components, SplittableRandom random, long deadline) {
+        for (int drawn = 0; drawn < samplesPerStream; drawn += SAMPLES_PER_ROUND) {
+            for (ConstraintSolver.Enumeration component : components)
+                component.sample(random, SAMPLES_PER_ROUND);
+            if (System.nanoTime() > deadline)
+                return;
+        }
+    }
+
+    /**
+     * @param estimates double[] estimate of each stream
+     * @return double half the width of the 95% confidence interval of their mean
+     */
+    private static double margin(double[] estimates) {
+        double mean = 0;
+        for (double estimate : estimates)
+            mean += estimate;
+        mean /= estimates.length;
+        double squares = 0;
+        for (double estimate : estimates)
+            squares += (estimate - mean) * (estimate - mean);
+        return T_95 * Math.sqrt(squares / (estimates.length - 1) / estimates.length);
+    }
+}
@@ -0,0 +1,255 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.BoardChange;
+import barefoot.minesweeper.BoardView;
+import barefoot.minesweeper.Engine;
+import barefoot.minesweeper.EnginePool;
+
+import java.util.Arrays;
+import java.util.SplittableRandom;
+import java.util.stream.LongStream;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Finds boards that can be won from a chosen first sweep without ever
+ * guessing, so bots are compared on skill instead of luck.
+ * Candidate boards are placed from seeds and played by a deterministic
+ * solver that only makes proven moves: single numbers first, then pairs
+ * of numbers from the PatternTable and last the exact ConstraintSolver.
+ * A candidate is rejected as soon as the solver is stuck, most of them
+ * already when the first sweep does not open an area.
+ * The candidates are checked in parallel on all cores, in blocks whose
+ * seeds are drawn in order from the seed of the generator, so the same seed
+ * gives the same boards no matter how many cores there are.
+ * Play a board from the generator with:
+ * <pre>
+ * NoGuessGenerator generator = new NoGuessGenerator(GAME_HARD);
+ * long[] seeds = generator.generateSeeds(42, 1000);
+ * session.newGame(generator.newEngine(seeds[0]), GAME_HARD[2]);
+ * session.sweep(generator.getFirstRow(), generator.getFirstCol());
+ * </pre>
+ */
+public class NoGuessGenerator {
+    //Number of candidates drawn before they are checked in parallel
+    private static final int CANDIDATES_PER_BLOCK = 4096;
+
+    private final int[] difficulty;
+    private final int firstRow;
+    private final int firstCol;
+    //Every thread checks its candidates with its own solver
+    private final ThreadLocal<Verifier> verifiers = ThreadLocal.withInitial(Verifier::new);
+
+    /**
+     * Generates boards that are solved from a sweep in the middle of the board
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     */
+    public NoGuessGenerator(int[] difficulty) {
+        this(difficulty, difficulty[0] / 2, difficulty[1] / 2);
+    }
+
+    /**
+     * @param difficulty int[] as found in the difficulty constants in Constants.java
+     * @param firstRow int row of the first sweep
+     * @param firstCol int column of the first sweep
+     */
+    public NoGuessGenerator(int[] difficulty, int firstRow, int firstCol) {
+        if (firstRow < 0 || firstCol < 0 || firstRow >= difficulty[0] || firstCol >= difficulty[1])
+            throw new IllegalArgumentException(String.format("Error, the first sweep %d,%d is outside the board", firstRow, firstCol));
+        this.difficulty = difficulty;
+        this.firstRow = firstRow;
+        this.firstCol = firstCol;
+    }
+
+    /**
+     * Finds boards that can be won without guessing
+     * @param seed long seed for the candidates, the same seed gives the same boards
+     * @param boards int number of boards to find
+     * @return long[] seeds of the boards, in the order they were drawn
+     */
+    public long[] generateSeeds(long seed, int boards) {
+        SplittableRandom random = new SplittableRandom(seed);
+        long[] found = new long[boards];
+        int count = 0;
+        while (count < boards) {
+            long[] accepted = LongStream.generate(random::nextLong).limit(CANDIDATES_PER_BLOCK).toArray();
+            accepted = Arrays.stream(accepted).parallel().filter(this::isNoGuess).toArray();
+            int taken = Math.min(accepted.length, boards - count);
+            System.arraycopy(accepted, 0, found, count, taken);
+            count += taken;
+        }
+        return found;
+    }
+
+    /**
+     * Plays the board of a seed with proven moves only
+     * @param seed long seed for the placement of the bombs
+     * @return boolean true if the board is won from the first sweep without guessing
+     */
+    public boolean isNoGuess(long seed) {
+        return verifiers.get().verify(seed);
+    }
+
+    /**
+     * Creates the board of a seed. The first sweep is not made, the player
+     * should make it at getFirstRow(), getFirstCol().
+     * @param seed long seed from generateSeeds()
+     * @return Engine for playing the board
+     */
+    public Engine newEngine(long seed) {
+        return new Engine(difficulty[0], difficulty[1], difficulty[2], seed);
+    }
+
+    public int[] getDifficulty() {
+        return difficulty;
+    }
+
+    public int getFirstRow() {
+        return firstRow;
+    }
+
+    public int getFirstCol() {
+        return firstCol;
+    }
+
+    /**
+     * Plays a candidate with proven moves only. Numbers next to a changed
+     * location are kept in a work list, so a number is only looked at again
+     * when something around it has changed. The same engine is reset for
+     * every candidate.
+     */
+    private class Verifier {
+        private final EnginePool engines = new EnginePool();
+        private final ConstraintSolver solver = new ConstraintSolver();
+        private final PatternTable patterns = PatternTable.getInstance();
+        private final int rows = difficulty[0];
+        private final int cols = difficulty[1];
+        private final int[] workList = new int[rows * cols];
+        private final boolean[] queued = new boolean[rows * cols];
+        private int pending;
+        private Engine engine;
+        private BoardView board;
+
+        boolean verify(long seed) {
+            engine = engines.acquire(rows, cols, difficulty[2], seed);
+            board = engine.getBoardView();
+            Arrays.fill(queued, false);
+            pending = 0;
+            queueChange(engine.sweepLocation(firstRow, firstCol));
+            if (engine.getGameStatus() == GAME_INPROGRESS && board.getCell(firstRow, firstCol) != CELL_CLEAR)
+                return false;
+            while (engine.getGameStatus() == GAME_INPROGRESS) {
+                if (pending > 0)
+                    solveNumber(workList[--pending]);
+                else if (!solvePairs() && !solveAll())
+                    return false;
+            }
+            return engine.getGameStatus() == GAME_WON;
+        }
+
+        /**
+         * Sweeps the hidden neighbours of a number with all its bombs flagged,
+         * and flags them when they must all be bombs
+         */
+        private void solveNumber(int index) {
+            queued[index] = false;
+            int row = index / cols, col = index % cols;
+            int hidden = 0, flagged = 0;
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                    byte cell = board.getCell(r, c);
+                    if (cell == CELL_HIDDEN)
+                        hidden++;
+                    else if (cell == CELL_FLAGGED)
+                        flagged++;
+                }
+            }
+            int value = board.getCell(row, col);
+            if (hidden == 0 || (value != flagged && value != flagged + hidden))
+                return;
+            for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                    if (board.getCell(r, c) == CELL_HIDDEN)
+                        act(value == flagged, r, c);
+                }
+            }
+        }
+
+        /**
+         * Makes every move proven by a pair of numbers
+         * @return boolean true if a move was made
+         */
+        private boolean solvePairs() {
+            boolean moved = false;
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    for (int direction = 0; direction < 2; direction++) {
+                        boolean vertical = direction == 1;
+                        int deduction = patterns.lookup(board, row, col, vertical);
+                        for (int i = 0; deduction != 0 && i < PatternTable.getLocations(); i++) {
+                            int r = PatternTable.getRow(row, i, vertical), c = PatternTable.getCol(col, i, vertical);
+                            boolean safe = PatternTable.isSafe(deduction, i);
+                            if ((safe || PatternTable.isBomb(deduction, i)) && board.getCell(r, c) == CELL_HIDDEN) {
+                                act(safe, r, c);
+                                moved = true;
+                            }
+                        }
+                    }
+                }
+            }
+            return moved;
+        }
+
+        /**
+         * Sweeps every location the ConstraintSolver proves safe, using the
+         * number of bombs left on the whole board
+         * @return boolean true if a move was made
+         */
+        private boolean solveAll() {
+            Frontier frontier = Frontier.of(board);
+            MineProbabilities probabilities = solver.solve(frontier, (int) (difficulty[2] - engine.getFlagCount()));
+            boolean moved = false;
+            for (int cell = 0; cell < frontier.getCellCount(); cell++) {
+                if (probabilities.getProbability(cell) == 0) {
+                    act(true, frontier.getRow(cell), frontier.getCol(cell));
+                    moved = true;
+                }
+            }
+            if (moved || frontier.getUnconstrainedCount() == 0 || probabilities.getUnconstrainedProbability() > 0)
+                return moved;
+            //No bombs are left away from the frontier
+            for (int row = 0; row < rows; row++) {
+                for (int col = 0; col < cols; col++) {
+                    if (board.getCell(row, col) == CELL_HIDDEN && frontier.getCell(row, col) < 0)
+                        act(true, row, col);
+                }
+            }
+            return true;
+        }
+
+        private void act(boolean sweep, int row, int col) {
+            if (engine.getGameStatus() != GAME_INPROGRESS)
+                return;
+            queueChange(sweep ? engine.sweepLocation(row, col) : engine.placeFlag(row, col));
+        }
+
+        /**
+         * Adds the numbers at and around the changed locations to the work list
+         */
+        private void queueChange(BoardChange change) {
+            for (int i = 0; i < change.getCount(); i++) {
+                int row = change.getRow(i), col = change.getCol(i);
+                for (int r = Math.max(row - 1, 0); r <= Math.min(row + 1, rows - 1); r++) {
+                    for (int c = Math.max(col - 1, 0); c <= Math.min(col + 1, cols - 1); c++) {
+                        int index = r * cols + c;
+                        byte cell = board.getCell(r, c);
+                        if (cell >= 1 && cell <= 8 && !queued[index]) {
+                            queued[index] = true;
+                            workList[pending++] = index;
+                        }
+                    }
+                }
+            }
+        }
+    }
+}
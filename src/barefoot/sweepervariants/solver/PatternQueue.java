@@ -0,0 +1,132 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.ActionBatch;
+import barefoot.minesweeper.BoardView;
+
+import java.util.Arrays;
+
+/**
+ * The pairs of numbers to look up in the PatternTable, only those around the
+ * locations that changed. A pair gives a new deduction only when a location
+ * of its window changed, so a bot that tells the queue about every location
+ * it sees change finds every deduction of the table without scanning the board.
+ * A pair is queued by its first number, the pairs going right and down from
+ * it are both looked up.
+ * Usage:
+ * <pre>
+ * pairs.reset(board);                        //for every new game
+ * pairs.changed(board, row, col);            //for every changed location
+ * pairs.findDeductions(table, board, actions, true);
+ * </pre>
+ * Create one queue per bot, it keeps the pairs of the game it last saw.
+ */
+public class PatternQueue {
+    private int rows;
+    private int cols;
+    //First numbers of the pairs to look up, row * cols + col, each location at most once
+    private int[] pairs = new int[0];
+    private boolean[] queued = new boolean[0];
+    private int pending;
+    //Locations already added by the current call of findDeductions(), marked with its stamp
+    private int[] added = new int[0];
+    private int stamp;
+
+    /**
+     * Empties the queue for a new board, and queues every number already on it
+     * @param board BoardView of the new game
+     */
+    public void reset(BoardView board) {
+        rows = board.getRows();
+        cols = board.getCols();
+        int size = rows * cols;
+        if (pairs.length != size) {
+            pairs = new int[size];
+            queued = new boolean[size];
+            added = new int[size];
+        } else {
+            Arrays.fill(queued, false);
+            Arrays.fill(added, 0);
+        }
+        pending = 0;
+        stamp = 0;
+        for (int index = 0; index < size; index++)
+            queue(board, index / cols, index % cols);
+    }
+
+    /**
+     * Queues every pair with the location in its window, or as one of its numbers
+     * @param board BoardView of the game, with the location already changed
+     * @param row int row of the changed location
+     * @param col int column of the changed location
+     */
+    public void changed(BoardView board, int row, int col) {
+        //a window reaches one location above and to the left of the first number, two below and to the right
+        for (int r = Math.max(row - 2, 0); r <= Math.min(row + 1, rows - 1); r++) {
+            for (int c = Math.max(col - 2, 0); c <= Math.min(col + 1, cols - 1); c++)
+                queue(board, r, c);
+        }
+    }
+
+    private void queue(BoardView board, int row, int col) {
+        int index = row * cols + col;
+        byte cell = board.getCell(row, col);
+        if (cell < 1 || cell > 8 || queued[index])
+            return;
+        queued[index] = true;
+        pairs[pending++] = index;
+    }
+
+    /**
+     * Looks up the queued pairs. A pair that gives nothing is taken off the queue
+     * until a location of its window changes. A pair that gives an action stays,
+     * so an action that is not taken is found again by the next call.
+     * @param table PatternTable to look the pairs up in
+     * @param board BoardView of the game
+     * @param actions ActionBatch a sweep is added to for every safe location, each location once
+     * @param bombs boolean true to also add a flag for every location that is a bomb
+     * @return int number of actions added
+     */
+    public int findDeductions(PatternTable table, BoardView board, ActionBatch actions, boolean bombs) {
+        if (++stamp == Integer.MAX_VALUE) {
+            Arrays.fill(added, 0);
+            stamp = 1;
+        }
+        int found = 0, kept = 0;
+        for (int p = 0; p < pending; p++) {
+            int index = pairs[p];
+            boolean useful = false;
+            for (int direction = 0; direction < 2; direction++) {
+                boolean vertical = direction == 1;
+                int deduction = table.lookup(board, index / cols, index % cols, vertical);
+                for (int i = 0; deduction != 0 && i < PatternTable.getLocations(); i++) {
+                    boolean safe = PatternTable.isSafe(deduction, i);
+                    if (!safe && !(bombs && PatternTable.isBomb(deduction, i)))
+                        continue;
+                    useful = true;
+                    int row = PatternTable.getRow(index / cols, i, vertical), col = PatternTable.getCol(index % cols, i, vertical);
+                    if (added[row * cols + col] == stamp)
+                        continue;
+                    added[row * cols + col] = stamp;
+                    if (safe)
+                        actions.sweep(row, col);
+                    else
+                        actions.flag(row, col);
+                    found++;
+                }
+            }
+            if (useful)
+                pairs[kept++] = index;
+            else
+                queued[index] = false;
+        }
+        pending = kept;
+        return found;
+    }
+
+    /**
+     * @return int number of pairs waiting to be looked up
+     */
+    public int size() {
+        return pending;
+    }
+}
@@ -0,0 +1,253 @@
+package barefoot.sweepervariants.solver;
+
+import barefoot.minesweeper.ActionBatch;
+import barefoot.minesweeper.BoardView;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+
+import static barefoot.minesweeper.Constants.*;
+
+/**
+ * Precomputed deductions for two revealed numbers next to each other.
+ * The two numbers and the locations around them fit in a window of 3 x 4
+ * locations, or 4 x 3 for two numbers above each other:
+ * <pre>
+ * a b c d
+ * e 1 2 h      the numbers are in the middle of the window, the ten
+ * i j k l      other locations are hidden or not
+ * </pre>
+ * The key of a window is which of the ten locations are hidden and how many
+ * bombs each number is missing, its value minus its flagged neighbours.
+ * For every key the table holds the hidden locations that are safe and the
+ * ones that are bombs in every placement of bombs that fits both numbers.
+ * The classic patterns follow from the pairs: 1-2 against a wall gives a
+ * bomb and a safe location, so 1-2-1 and 1-2-2-1 are solved pair by pair.
+ * Flags are trusted to be bombs.
+ * The table is built with build(), written with PatternTableBuilder and
+ * read from the resource /patterns.bin when first used.
+ */
+public class PatternTable {
+    static final int MAGIC = 0x4D535054; //"MSPT"
+    private static final String RESOURCE = "/patterns.bin";
+    //The ten locations around the numbers, as row * 4 + column in the window
+    private static final int[] WINDOW = {0, 1, 2, 3, 4, 7, 8, 9, 10, 11};
+    private static final int LOCATIONS = WINDOW.length;
+    //Locations of WINDOW next to the left and the right number, as bits
+    private static final int LEFT_NEIGHBOURS = neighbours(1);
+    private static final int RIGHT_NEIGHBOURS = neighbours(2);
+    private static final int KEYS = (1 << LOCATIONS) * 9 * 9;
+
+    private static PatternTable instance;
+
+    //Safe locations in the low ten bits, bombs in the next ten, by key
+    private final int[] deductions;
+
+    /**
+     * The table shipped with the game, read the first time it is used.
+     * If the resource is missing the table is built, which takes a fraction of a second.
+     * @return PatternTable shared by all threads
+     */
+    public static synchronized PatternTable getInstance() {
+        if (instance == null) {
+            try (InputStream in = PatternTable.class.getResourceAsStream(RESOURCE)) {
+                instance = in == null ? build() : read(in);
+            } catch (IOException e) {
+                throw new UncheckedIOException("Error, could not read " + RESOURCE, e);
+            }
+        }
+        return instance;
+    }
+
+    private PatternTable(int[] deductions) {
+        this.deductions = deductions;
+    }
+
+    /**
+     * Solves every window by trying all placements of bombs on its hidden locations
+     * @return PatternTable with all deductions
+     */
+    public static PatternTable build() {
+        int[] deductions = new int[KEYS];
+        for (int hidden = 0; hidden < 1 << LOCATIONS; hidden++) {
+            for (int left = 0; left <= 8; left++) {
+                for (int right = 0; right <= 8; right++)
+                    deductions[key(hidden, left, right)] = solve(hidden, left, right);
+            }
+        }
+        return new PatternTable(deductions);
+    }
+
+    private static int solve(int hidden, int left, int right) {
+        int alwaysBomb = hidden, neverBomb = hidden;
+        boolean fits = false;
+        //every subset of the hidden locations, the empty set last
+        for (int bombs = hidden; ; bombs = (bombs - 1) & hidden) {
+            if (Integer.bitCount(bombs & LEFT_NEIGHBOURS) == left
+                    && Integer.bitCount(bombs & RIGHT_NEIGHBOURS) == right) {
+                fits = true;
+                alwaysBomb &= bombs;
+                neverBomb &= ~bombs;
+            }
+            if (bombs == 0)
+                break;
+        }
+        if (!fits)
+            return 0;
+        return neverBomb | alwaysBomb << LOCATIONS;
+    }
+
+    private static int neighbours(int numberCol) {
+        int mask = 0;
+        for (int i = 0; i < LOCATIONS; i++) {
+            if (Math.abs(WINDOW[i] % 4 - numberCol) <= 1)
+                mask |= 1 << i;
+        }
+        return mask;
+    }
+
+    private static int key(int hidden, int left, int right) {
+        return (hidden * 9 + left) * 9 + right;
+    }
+
+    /**
+     * Reads a table written by write()
+     * @param in InputStream positioned at the table
+     * @return PatternTable read
+     * @throws IOException if the table can not be read
+     */
+    public static PatternTable read(InputStream in) throws IOException {
+        DataInputStream data = new DataInputStream(new InflaterInputStream(in, new Inflater(), 1 << 16));
+        if (data.readInt() != MAGIC || data.readInt() != KEYS)
+            throw new IOException("Error, not a pattern table");
+        byte[] packed = new byte[KEYS * 3];
+        data.readFully(packed);
+        int[] deductions = new int[KEYS];
+        for (int i = 0; i < KEYS; i++)
+            deductions[i] = (packed[3 * i] & 0xFF) | (packed[3 * i + 1] & 0xFF) << 8 | (packed[3 * i + 2] & 0xFF) << 16;
+        return new PatternTable(deductions);
+    }
+
+    /**
+     * Writes the table compressed, three bytes for each key
+     * @param out OutputStream to write to, it is not closed
+     * @throws IOException if the table can not be written
+     */
+    public void write(OutputStream out) throws IOException {
+        DeflaterOutputStream deflater = new DeflaterOutputStream(out);
+        DataOutputStream data = new DataOutputStream(deflater);
+        data.writeInt(MAGIC);
+        data.writeInt(KEYS);
+        byte[] packed = new byte[KEYS * 3];
+        for (int i = 0; i < KEYS; i++) {
+            packed[3 * i] = (byte) deductions[i];
+            packed[3 * i + 1] = (byte) (deductions[i] >>> 8);
+            packed[3 * i + 2] = (byte) (deductions[i] >>> 16);
+        }
+        data.write(packed);
+        data.flush();
+        deflater.finish();
+    }
+
+    /**
+     * Looks up the deductions for a number and its neighbour to the right,
+     * or below it when vertical is true. Both must be revealed numbers.
+     * @param board BoardView to read
+     * @param row int row of the first number
+     * @param col int column of the first number
+     * @param vertical boolean true for the number below, false for the number to the right
+     * @return int deductions, read with isSafe() and isBomb(), 0 if nothing was found
+     */
+    public int lookup(BoardView board, int row, int col, boolean vertical) {
+        int secondRow = vertical ? row + 1 : row, secondCol = vertical ? col : col + 1;
+        if (secondRow >= board.getRows() || secondCol >= board.getCols())
+            return 0;
+        int left = board.getCell(row, col), right = board.getCell(secondRow, secondCol);
+        if (left < 1 || left > 8 || right < 1 || right > 8)
+            return 0;
+        int hidden = 0;
+        for (int i = 0; i < LOCATIONS; i++) {
+            int r = getRow(row, i, vertical), c = getCol(col, i, vertical);
+            if (r < 0 || c < 0 || r >= board.getRows() || c >= board.getCols())
+                continue;
+            byte cell = board.getCell(r, c);
+            if (cell == CELL_HIDDEN)
+                hidden |= 1 << i;
+            else if (cell == CELL_FLAGGED) {
+                if ((LEFT_NEIGHBOURS & 1 << i) != 0)
+                    left--;
+                if ((RIGHT_NEIGHBOURS & 1 << i) != 0)
+                    right--;
+            }
+        }
+        if (hidden == 0 || left < 0 || right < 0)
+            return 0;
+        return deductions[key(hidden, left, right)];
+    }
+
+    /**
+     * Adds a sweep for every location proven safe by a pair of numbers on the board.
+     * Every pair of the board is looked up, a bot playing a whole game should keep
+     * a PatternQueue instead and only look up the pairs around the changes.
+     * @param board BoardView to read
+     * @param safeLocations ActionBatch the sweeps are added to, each location once
+     * @return int number of sweeps added
+     */
+    public int findSafeLocations(BoardView board, ActionBatch safeLocations) {
+        PatternQueue pairs = new PatternQueue();
+        pairs.reset(board);
+        return pairs.findDeductions(this, board, safeLocations, false);
+    }
+
+    /**
+     * @param deduction int from lookup()
+     * @param location int location in the window, 0 - 9
+     * @return boolean true if the location is safe
+     */
+    public static boolean isSafe(int deduction, int location) {
+        return (deduction & 1 << location) != 0;
+    }
+
+    /**
+     * @param deduction int from lookup()
+     * @param location int location in the window, 0 - 9
+     * @return boolean true if the location is a bomb
+     */
+    public static boolean isBomb(int deduction, int location) {
+        return (deduction & 1 << (location + LOCATIONS)) != 0;
+    }
+
+    /**
+     * @param row int row of the first number
+     * @param location int location in the window, 0 - 9
+     * @param vertical boolean as given to lookup()
+     * @return int row of the location on the board
+     */
+    public static int getRow(int row, int location, boolean vertical) {
+        return row - 1 + (vertical ? WINDOW[location] % 4 : WINDOW[location] / 4);
+    }
+
+    /**
+     * @param col int column of the first number
+     * @param location int location in the window, 0 - 9
+     * @param vertical boolean as given to lookup()
+     * @return int column of the location on the board
+     */
+    public static int getCol(int col, int location, boolean vertical) {
+        return col - 1 + (vertical ? WINDOW[location] / 4 : WINDOW[location] % 4);
+    }
+
+    /**
+     * @return int number of locations around a pair of numbers
+     */
+    public static int getLocations() {
+        return LOCATIONS;
+    }
+}